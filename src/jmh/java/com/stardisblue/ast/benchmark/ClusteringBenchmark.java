@@ -0,0 +1,219 @@
+package com.stardisblue.ast.benchmark;
+
+import com.stardisblue.ast.structure.Cluster;
+import com.stardisblue.ast.structure.ClusterManager;
+import com.stardisblue.ast.structure.Matrix;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.ast.structure.TriangularClusterManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to build the whole cluster tree of a random coupling matrix with the scan that rebuilt the matrix after each
+ * merge, with {@link ClusterManager} and with {@link TriangularClusterManager}.
+ * <p>
+ * Each operation creates its manager from the matrix and merges until one cluster is left. The matrix couples each
+ * pair of classes with the probability <tt>density</tt>, at most 9 invocations per pair. The scan is cubic, an
+ * operation takes about 1 s for 1000 classes, 5 min for 5000 and 45 min for 10000 : <tt>-e scan</tt> leaves it out.
+ * <p>
+ * <tt>mvn -Pjmh package</tt> then <tt>java -cp target/java-source-analyzer-1.0.0-jar-with-dependencies.jar
+ * org.openjdk.jmh.Main ClusteringBenchmark</tt>, with <tt>-p n=1000</tt> for a single size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class ClusteringBenchmark {
+
+    @Param({"1000", "5000", "10000"})
+    public int n;
+
+    @Param("0.1")
+    public double density;
+
+    @Param("42")
+    public long seed;
+
+    private Matrix matrix;
+
+    @Setup
+    public void setup() {
+        SymbolTable symbols = new SymbolTable();
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = symbols.intern("Class" + i);
+        }
+
+        Random random = new Random(seed);
+        matrix = new Matrix(symbols, keys);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (random.nextDouble() < density) {
+                    matrix.increment(keys[i], keys[j], 1 + random.nextInt(9));
+                }
+            }
+        }
+        matrix.generateTable();
+    }
+
+    @Benchmark
+    public Cluster<String> scan() {
+        ScanClusterManager<String> clusterManager = new ScanClusterManager<>(leaves(), matrix);
+        while (clusterManager.clusters.size() > 1) {
+            int[] closestPair = clusterManager.getClosestPairId();
+            clusterManager.initSimilarity(closestPair[0], closestPair[1]);
+            clusterManager.updateMatrix(closestPair[0], closestPair[1]);
+        }
+
+        return clusterManager.clusters.get(0);
+    }
+
+    @Benchmark
+    public Cluster<String> heap() {
+        ClusterManager<String> clusterManager = new ClusterManager<>(leaves(), matrix);
+        while (clusterManager.size() > 1) {
+            clusterManager.merge();
+        }
+
+        return clusterManager.getClusters().get(0);
+    }
+
+    @Benchmark
+    public Cluster<String> triangle() {
+        TriangularClusterManager<String> clusterManager =
+                new TriangularClusterManager<>(leaves(), matrix, Runtime.getRuntime().availableProcessors());
+        try {
+            while (clusterManager.size() > 1) {
+                clusterManager.merge();
+            }
+        } finally {
+            clusterManager.shutdown();
+        }
+
+        return clusterManager.getClusters().get(0);
+    }
+
+    /**
+     * @return new leaves, the managers set their similarity
+     */
+    private List<Cluster<String>> leaves() {
+        List<Cluster<String>> clusters = new ArrayList<>(n);
+        for (String className : matrix.getNames()) {
+            clusters.add(new Cluster<>(clusters.size(), className));
+        }
+
+        return clusters;
+    }
+
+    /**
+     * The clustering before the heap of the pairs : each merge scans the whole matrix for the closest pair, then copies
+     * it without the two merged rows and columns
+     */
+    private static class ScanClusterManager<T> {
+        ArrayList<Cluster<T>> clusters;
+        int[][] dynamicMatrix;
+
+        ScanClusterManager(List<Cluster<T>> clusters, Matrix matrix) {
+            this.clusters = new ArrayList<>(clusters);
+
+            int size = matrix.size();
+            int[] columns = matrix.getColumns();
+            int[] values = matrix.getValues();
+            dynamicMatrix = new int[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int cell = matrix.rowFrom(i); cell < matrix.rowTo(i); cell++) {
+                    dynamicMatrix[i][columns[cell]] = values[cell];
+                }
+            }
+        }
+
+        void initSimilarity(int firstId, int lastId) {
+            if (firstId == lastId) {
+                return;
+            }
+
+            int similarityValue = dynamicMatrix[firstId][lastId] + dynamicMatrix[lastId][firstId];
+            clusters.get(firstId).initSimilarity(similarityValue);
+            clusters.get(lastId).initSimilarity(similarityValue);
+        }
+
+        void updateMatrix(int firstId, int lastId) {
+            if (firstId == lastId) {
+                return;
+            }
+
+            Cluster<T> toFuseFirst = clusters.get(firstId);
+            Cluster<T> toFuseLast = clusters.get(lastId);
+
+            int fusedCapacity = clusters.size() - 1;
+            int fusedName = clusters.get(fusedCapacity).getName() + 1;
+
+            ArrayList<Cluster<T>> replacedClusters = new ArrayList<>(fusedCapacity);
+            for (Cluster<T> cluster : clusters) {
+                if (cluster.getName() != toFuseFirst.getName() && cluster.getName() != toFuseLast.getName()) {
+                    replacedClusters.add(cluster);
+                }
+            }
+
+            int similarity = dynamicMatrix[firstId][lastId] + dynamicMatrix[lastId][firstId];
+            int fusedId = replacedClusters.size();
+            replacedClusters.add(new Cluster<>(fusedName, toFuseFirst, toFuseLast, similarity));
+            clusters = replacedClusters;
+
+            int[][] updatedDynamicMatrix = new int[fusedCapacity][fusedCapacity];
+            int iterCorrection = 0;
+            for (int i = 0; i < dynamicMatrix.length; i++) {
+                if (i == lastId || i == firstId) {
+                    ++iterCorrection;
+                    continue;
+                }
+
+                updatedDynamicMatrix[fusedId][i - iterCorrection] = dynamicMatrix[firstId][i] + dynamicMatrix[lastId][i];
+                updatedDynamicMatrix[i - iterCorrection][fusedId] = dynamicMatrix[i][firstId] + dynamicMatrix[i][lastId];
+            }
+
+            int rowCorrection = 0;
+            for (int i = 0; i < dynamicMatrix.length; i++) {
+                if (i == lastId || i == firstId) {
+                    ++rowCorrection;
+                    continue;
+                }
+
+                int columnCorrection = 0;
+                for (int j = 0; j < dynamicMatrix.length; j++) {
+                    if (j == lastId || j == firstId) {
+                        ++columnCorrection;
+                        continue;
+                    }
+
+                    updatedDynamicMatrix[i - rowCorrection][j - columnCorrection] = dynamicMatrix[i][j];
+                }
+            }
+
+            dynamicMatrix = updatedDynamicMatrix;
+        }
+
+        int[] getClosestPairId() {
+            int[] pair = new int[]{-1, -1};
+            int max = -1;
+            for (int i = 0; i < dynamicMatrix.length; i++) {
+                for (int j = i + 1; j < dynamicMatrix.length; j++) {
+                    int sum = dynamicMatrix[i][j] + dynamicMatrix[j][i];
+                    if (sum > max) {
+                        max = sum;
+                        pair[0] = i;
+                        pair[1] = j;
+                    }
+                }
+            }
+
+            return pair;
+        }
+    }
+}
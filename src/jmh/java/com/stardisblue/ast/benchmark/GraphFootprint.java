@@ -0,0 +1,140 @@
+package com.stardisblue.ast.benchmark;
+
+import com.stardisblue.ast.structure.Graph;
+import com.stardisblue.ast.structure.SymbolTable;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Retained heap of a call graph in the boxed layout it had before {@link Graph} was stored in compressed sparse row
+ * form, and in the current layout.
+ * <p>
+ * Both layouts are built from the same random links: the callers are the first half of the nodes and belong to the
+ * project, the callees are any node. Each graph is measured alone, as the heap used after full collections while it is
+ * referenced minus the heap used before it was built.
+ * <p>
+ * <tt>mvn -Pjmh package</tt> then
+ * <tt>java -Xmx4g -cp target/java-source-analyzer-1.0.0-jar-with-dependencies.jar
+ * com.stardisblue.ast.benchmark.GraphFootprint [nodes] [links] [seed]</tt>, by default 200000 nodes, 2000000 links
+ * and seed 42.
+ */
+public class GraphFootprint {
+
+    public static void main(String... args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int links = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        SymbolTable symbols = new SymbolTable();
+        for (int node = 0; node < nodes; node++) {
+            symbols.intern("Class" + node / 16 + ".method" + node + "()");
+        }
+
+        Random random = new Random(seed);
+        int[] sources = new int[links];
+        int[] targets = new int[links];
+        int[] calls = new int[links];
+        for (int i = 0; i < links; i++) {
+            sources[i] = random.nextInt(Math.max(1, nodes / 2));
+            targets[i] = random.nextInt(nodes);
+            calls[i] = 1 + random.nextInt(3);
+        }
+
+        long before = usedHeap();
+        BoxedGraph boxed = BoxedGraph.build(symbols, sources, targets, calls);
+        long boxedBytes = usedHeap() - before;
+        int boxedNodes = boxed.size;
+        boxed = null;
+
+        before = usedHeap();
+        Graph graph = build(symbols, sources, targets, calls);
+        long graphBytes = usedHeap() - before;
+
+        System.out.println(nodes + " nodes, " + links + " links, seed " + seed);
+        System.out.println("boxed layout : " + mb(boxedBytes) + " MB retained, " + boxedNodes + " nodes");
+        System.out.println("csr layout   : " + mb(graphBytes) + " MB retained, " + graph.size() + " nodes, " +
+                                   graph.numberOfLinks() + " distinct links, footprint() " +
+                                   mb(graph.footprint()) + " MB");
+    }
+
+    private static Graph build(SymbolTable symbols, int[] sources, int[] targets, int[] calls) {
+        Graph.Builder builder = new Graph.Builder(symbols);
+        for (int i = 0; i < sources.length; i++) {
+            int source = builder.node(sources[i]);
+            builder.belongs(source);
+            builder.link(source, builder.node(targets[i]), calls[i]);
+        }
+
+        return builder.build();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String mb(long bytes) {
+        return String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * The fields the graph had before the compressed sparse row form, filled the way Compute.graph filled them
+     */
+    private static class BoxedGraph {
+        int[] nodeIds;
+        int[] nodeSymbols = new int[16];
+        int size = 0;
+
+        ArrayList<Boolean> belongsToProject = new ArrayList<>();
+        ArrayList<Integer> countParents = new ArrayList<>();
+        HashMap<Integer, HashSet<Integer>> linkIds = new HashMap<>();
+
+        static BoxedGraph build(SymbolTable symbols, int[] sources, int[] targets, int[] calls) {
+            BoxedGraph graph = new BoxedGraph();
+            graph.nodeIds = new int[symbols.size()];
+
+            for (int i = 0; i < sources.length; i++) {
+                int callerId;
+                if (graph.nodeIds[sources[i]] != 0) {
+                    callerId = graph.nodeIds[sources[i]] - 1;
+                    graph.belongsToProject.set(callerId, true);
+                } else {
+                    callerId = graph.save(sources[i], true, 0);
+                }
+
+                int calleeId;
+                if (graph.nodeIds[targets[i]] != 0) {
+                    calleeId = graph.nodeIds[targets[i]] - 1;
+                    graph.countParents.set(calleeId, graph.countParents.get(calleeId) + calls[i]);
+                } else {
+                    calleeId = graph.save(targets[i], false, calls[i]);
+                }
+
+                graph.linkIds.computeIfAbsent(callerId, k -> new HashSet<>()).add(calleeId);
+            }
+
+            return graph;
+        }
+
+        private int save(int symbol, boolean belongs, int count) {
+            if (size == nodeSymbols.length) {
+                nodeSymbols = Arrays.copyOf(nodeSymbols, size * 2);
+            }
+
+            belongsToProject.add(belongs);
+            countParents.add(count);
+            nodeIds[symbol] = size + 1;
+            nodeSymbols[size] = symbol;
+
+            return size++;
+        }
+    }
+}
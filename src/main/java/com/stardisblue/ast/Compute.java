@@ -3,15 +3,23 @@ package com.stardisblue.ast;
 import com.stardisblue.ast.info.MethodDeclarationInfo;
 import com.stardisblue.ast.info.MethodInvocationInfo;
 import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.resolver.InvocationResolver;
+import com.stardisblue.ast.structure.CallGraphs;
 import com.stardisblue.ast.structure.Cluster;
 import com.stardisblue.ast.structure.ClusterManager;
 import com.stardisblue.ast.structure.Graph;
 import com.stardisblue.ast.structure.Matrix;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.ast.structure.TriangularClusterManager;
 import com.stardisblue.functional.TriConsumer;
 import com.stardisblue.logging.Logger;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 public class Compute {
     /**
@@ -38,137 +46,257 @@ public class Compute {
     }
 
 
+    /**
+     * Builds the method, class and package call graphs and the class coupling matrix in a single pass.
+     * <p>
+     * Each aggregated invocation is visited once and feeds the five structures, the result is the same as calling
+     * {@link #methodGraph(SymbolTable, List)}, {@link #classGraph(SymbolTable, List)},
+     * {@link #packageGraph(SymbolTable, List)} and {@link #classCoupling(SymbolTable, List, List)}. The class graph is
+     * also built on the qualified names of the classes, for the dependency cycles. With more than one
+     * thread, the matrix is counted by a fork-join pool while the graphs are built, see
+     * {@link #classCoupling(SymbolTable, List, List, int)}.
+     *
+     * @param symbols table the names of the classes and methods are interned in
+     * @param classes list of classes
+     * @param methods list of methods
+     * @param threads number of workers counting the matrix
+     * @return the graphs and the matrix
+     */
+    public static CallGraphs callGraphs(SymbolTable symbols, List<TypeDeclarationInfo> classes,
+                                        List<MethodDeclarationInfo> methods, int threads) {
+        Graph.Builder methodGraph = new Graph.Builder(symbols);
+        Graph.Builder classGraph = new Graph.Builder(symbols);
+        Graph.Builder qualifiedClassGraph = new Graph.Builder(symbols);
+        Graph.Builder packageGraph = new Graph.Builder(symbols);
+
+        Matrix matrix = emptyCoupling(symbols, classes);
+
+        ForkJoinPool pool = null;
+        ForkJoinTask<Matrix> coupling = null;
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+            coupling = pool.submit(new CouplingTask(matrix, methods, 0, methods.size(),
+                                                    Math.max(256, methods.size() / (4 * threads))));
+        }
+
+        try {
+            for (MethodDeclarationInfo caller : methods) {
+                TypeDeclarationInfo parent = caller.getParent();
+
+                // the nodes of the caller are looked up once for all its invocations
+                int methodId = methodGraph.node(caller.getSignatureId());
+                int classId = classGraph.node(parent.getNameId());
+                int qualifiedClassId = qualifiedClassGraph.node(parent.getFullNameId());
+                int packageId = packageGraph.node(parent.getPackageNameId());
+                methodGraph.belongs(methodId);
+                classGraph.belongs(classId);
+                qualifiedClassGraph.belongs(qualifiedClassId);
+                packageGraph.belongs(packageId);
+
+                List<MethodInvocationInfo> callees = caller.getMethodCalls();
+                int[] counts = caller.getCallCounts();
+                for (int i = 0; i < callees.size(); i++) {
+                    MethodInvocationInfo callee = callees.get(i);
+
+                    methodGraph.link(methodId, methodGraph.node(callee.getSignatureId()), counts[i]);
+                    classGraph.link(classId, classGraph.node(callee.getClassTypeId()), counts[i]);
+                    qualifiedClassGraph.link(qualifiedClassId,
+                                             qualifiedClassGraph.node(callee.getClassFullNameId()), counts[i]);
+                    packageGraph.link(packageId, packageGraph.node(callee.getPackageNameId()), counts[i]);
+                    if (coupling == null) {
+                        matrix.increment(parent.getFullNameId(), callee.getClassFullNameId(), counts[i]);
+                    }
+                }
+            }
+
+            if (coupling != null) {
+                matrix = coupling.join();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        matrix.generateTable();
+
+        return new CallGraphs(methodGraph.build(), classGraph.build(), qualifiedClassGraph.build(),
+                              packageGraph.build(), matrix);
+    }
+
+    /**
+     * Pairs each method with the methods of the project overriding it, a call to the first one may run the others.
+     * <p>
+     * The supertypes are found like the receivers of the unresolved invocations, see
+     * {@link InvocationResolver#find(Map, TypeDeclarationInfo, String)}. A method overrides the methods of all its
+     * ancestors having the same name and parameter types.
+     *
+     * @param classes all the classes of the project
+     * @return the symbol id of the overridden method then of the overrider, for each pair
+     */
+    public static List<int[]> overrides(List<TypeDeclarationInfo> classes) {
+        HashMap<String, TypeDeclarationInfo> types = new HashMap<>(classes.size());
+        for (TypeDeclarationInfo type : classes) {
+            types.putIfAbsent(type.getFullName(), type);
+        }
+
+        List<int[]> overrides = new ArrayList<>();
+        for (TypeDeclarationInfo type : classes) {
+            if (type.getSuperTypes().isEmpty() || type.numberOfMethods() == 0) continue;
+
+            HashMap<String, MethodDeclarationInfo> methods = new HashMap<>(type.numberOfMethods());
+            for (MethodDeclarationInfo method : type.getMethods()) {
+                methods.put(method.getCleanMethod(), method);
+            }
+
+            // breadth first through the ancestors declared in the project, an interface can be reached more than once
+            HashSet<TypeDeclarationInfo> visited = new HashSet<>();
+            ArrayDeque<TypeDeclarationInfo> queue = new ArrayDeque<>();
+            visited.add(type);
+            queue.add(type);
+            while (!queue.isEmpty()) {
+                TypeDeclarationInfo current = queue.remove();
+
+                for (String superType : current.getSuperTypes()) {
+                    TypeDeclarationInfo ancestor = InvocationResolver.find(types, current, superType);
+                    if (ancestor == null || !visited.add(ancestor)) continue;
+
+                    queue.add(ancestor);
+                    for (MethodDeclarationInfo overridden : ancestor.getMethods()) {
+                        MethodDeclarationInfo overrider = methods.get(overridden.getCleanMethod());
+                        if (overrider != null) {
+                            overrides.add(new int[]{overridden.getSignatureId(), overrider.getSignatureId()});
+                        }
+                    }
+                }
+            }
+        }
+
+        return overrides;
+    }
+
     /**
      * Generates a an object representing the method call graph
      *
+     * @param symbols table the names of the methods are interned in
      * @param methods list of method decorators
      * @return an object representing a method call graph
      */
-    public static Graph methodGraph(List<MethodDeclarationInfo> methods) {
-        return graph(methods,
+    public static Graph methodGraph(SymbolTable symbols, List<MethodDeclarationInfo> methods) {
+        return graph(symbols, methods,
                      MethodDeclarationInfo::getMethodCalls,
-                     MethodDeclarationInfo::getShortWithParamTypes,
-                     MethodInvocationInfo::getShortWithParamTypes);
+                     MethodDeclarationInfo::getCallCounts,
+                     MethodDeclarationInfo::getSignatureId,
+                     MethodInvocationInfo::getSignatureId);
     }
 
     /**
      * Generates an object representing the class call graph
      *
+     * @param symbols table the names of the classes are interned in
      * @param methods list of methodDecorators
      * @return an object representing a class call graph
      */
-    public static Graph classGraph(List<MethodDeclarationInfo> methods) {
-        return graph(methods,
+    public static Graph classGraph(SymbolTable symbols, List<MethodDeclarationInfo> methods) {
+        return graph(symbols, methods,
                      MethodDeclarationInfo::getMethodCalls,
-                     (m) -> m.getParent().getName(),
-                     MethodInvocationInfo::getClassType);
+                     MethodDeclarationInfo::getCallCounts,
+                     (m) -> m.getParent().getNameId(),
+                     MethodInvocationInfo::getClassTypeId);
     }
 
     /**
-     * Creates a graph structure iterating over parent and child using keynode and valuenode as references
+     * Call graphs of the queries, the references are calls too, see {@link MethodDeclarationInfo#getReferences()}
      *
-     * @param parent       Parent list
-     * @param child        invoked foreach parent to retrieve the childrens
-     * @param parentString invoked foreach parent to get the parent string value
-     * @param childString  invoked foreach child to get the child string value
-     * @param <T>
-     * @param <U>
-     * @return
+     * @param symbols table the names of the classes and methods are interned in
+     * @param methods list of methods
+     * @param classes if the graph is between the classes instead of the methods
+     * @return the graph of the invocations and the references
      */
-    public static <T, U> Graph graph(List<T> parent,
-                                     Function<T, List<U>> child,
-                                     Function<T, String> parentString,
-                                     Function<U, String> childString) {
-        Graph graph = new Graph();
+    public static Graph referenceGraph(SymbolTable symbols, List<MethodDeclarationInfo> methods, boolean classes) {
+        return graph(symbols, methods,
+                     Compute::callsAndReferences,
+                     Compute::callAndReferenceCounts,
+                     classes ? (m) -> m.getParent().getNameId() : MethodDeclarationInfo::getSignatureId,
+                     classes ? MethodInvocationInfo::getClassTypeId : MethodInvocationInfo::getSignatureId);
+    }
 
-        for (T caller : parent) {
-            // there are people who call
-            String callerString = parentString.apply(caller);
-
-            int callerId;
-            if (graph.has(callerString)) {// we have her in our phonebook
-                callerId = graph.get(callerString);// we get her number
-                graph.belongs(callerId, true); // she belongs to us because she's the caller
-            } else {// she does not exist in our phonebook
-                callerId = graph.nextId();// so we give her a number
-                graph.belongs(true);// she belongs to us because she's the caller
-                graph.beginCount(0); // we can begin to count the number of callees she has
-                graph.save(callerString, callerId); // we add her to our phonebook
-            }
+    private static List<MethodInvocationInfo> callsAndReferences(MethodDeclarationInfo method) {
+        if (method.getReferences().isEmpty()) {
+            return method.getMethodCalls();
+        }
 
-            // we her and the people she called together
-            HashSet<Integer> callees = graph.getLinkIds().computeIfAbsent(callerId, (k) -> new HashSet<>());
-
-            for (U callee : child.apply(caller)) {
-                // the ones who are called
-                String calleeString = childString.apply(callee);
-
-                int calleeId;
-                if (graph.has(calleeString)) { // we have him in our phonebook
-                    calleeId = graph.get(calleeString); // so we get the phone number
-                    graph.incrementCount(calleeId); // the called is being called once more
-                } else {// we do not have him in our phonebook
-                    calleeId = graph.nextId(); // so we get him a number
-                    graph.belongs(false); // he does not belong to us
-                    graph.beginCount(1); // he was at least called by the caller
-                    graph.save(calleeString, calleeId); // we save this guy's number
-                }
+        List<MethodInvocationInfo> callees = new ArrayList<>(method.getMethodCalls().size() +
+                                                                     method.getReferences().size());
+        callees.addAll(method.getMethodCalls());
+        callees.addAll(method.getReferences());
 
-                callees.add(calleeId); // we add this person to the list of called people
-            }
-        }
+        return callees;
+    }
+
+    private static int[] callAndReferenceCounts(MethodDeclarationInfo method) {
+        int[] calls = method.getCallCounts();
+        int[] references = method.getReferenceCounts();
 
-        return graph;
+        int[] counts = Arrays.copyOf(calls, calls.length + references.length);
+        System.arraycopy(references, 0, counts, calls.length, references.length);
+
+        return counts;
     }
 
     /**
-     * Returns a list of json objects representing nodes
+     * Generates an object representing the package call graph
      *
-     * @param nodeIds          the ids of the methods
-     * @param belongsToProject if the node belongs to the repository
-     * @return an array containing a node represented as a json object
+     * @param symbols table the names of the packages are interned in
+     * @param methods list of methodDecorators
+     * @return an object representing a package call graph
      */
-    public static ArrayList<String> graphNodes(HashMap<String, Integer> nodeIds, ArrayList<Boolean> belongsToProject) {
-        ArrayList<String> nodes = new ArrayList<>(nodeIds.size());
-
-        for (Map.Entry<String, Integer> nodeEntry : nodeIds.entrySet()) {
-            // the json has an id, a name and if he belongs to the project
-            nodes.add("{\"id\":" + nodeEntry.getValue() + ", " +
-                              "\"name\": \"" + nodeEntry.getKey() + "\", " +
-                              "\"own\": " + (belongsToProject.get(nodeEntry.getValue()) ? "true" : "false") + "}");
-        }
-
-        return nodes;
+    public static Graph packageGraph(SymbolTable symbols, List<MethodDeclarationInfo> methods) {
+        return graph(symbols, methods,
+                     MethodDeclarationInfo::getMethodCalls,
+                     MethodDeclarationInfo::getCallCounts,
+                     (m) -> m.getParent().getPackageNameId(),
+                     MethodInvocationInfo::getPackageNameId);
     }
 
     /**
-     * Returns an array representing all the links as json objects
+     * Creates a graph structure iterating over parent and child using keynode and valuenode as references
      *
-     * @param linkIds      optimized hashmap representing all the links
-     * @param countParents number of source nodes for a given targetNodeId
-     * @return an array containing a links represented as json object
+     * @param symbols      table the ids are taken from
+     * @param parent       Parent list
+     * @param child        invoked foreach parent to retrieve the childrens
+     * @param childCount   invoked foreach parent to retrieve how many times each children is called (same index)
+     * @param parentString invoked foreach parent to get the symbol id of the parent string value
+     * @param childString  invoked foreach child to get the symbol id of the child string value
+     * @param <T>
+     * @param <U>
+     * @return
      */
-    public static List<String> graphLinks(HashMap<Integer, HashSet<Integer>> linkIds, ArrayList<Integer> countParents) {
-        ArrayList<String> links = new ArrayList<>();
-
-        for (Map.Entry<Integer, HashSet<Integer>> linkEntry : linkIds.entrySet()) {
-            int callerId = linkEntry.getKey();
-
-            for (int calleeId : linkEntry.getValue()) {
-                int parentCount = countParents.get(calleeId);
-                // the more the callee was called, the less he weights
-                float weight = (float) (1 / (0.5 * parentCount + 0.5));
+    public static <T, U> Graph graph(SymbolTable symbols,
+                                     List<T> parent,
+                                     Function<T, List<U>> child,
+                                     Function<T, int[]> childCount,
+                                     ToIntFunction<T> parentString,
+                                     ToIntFunction<U> childString) {
+        Graph.Builder graph = new Graph.Builder(symbols);
 
-                links.add("{\"source\":" + callerId + ", " +
-                                  "\"target\": " + calleeId + ", " +
-                                  "\"str\": " + weight + "}");
+        for (T caller : parent) {
+            // there are people who call, they belong to us
+            int callerId = graph.node(parentString.applyAsInt(caller));
+            graph.belongs(callerId);
+
+            List<U> children = child.apply(caller);
+            int[] counts = childCount.apply(caller);
+            for (int i = 0; i < children.size(); i++) {
+                // the ones who are called, and how many times
+                int calleeId = graph.node(childString.applyAsInt(children.get(i)));
+                graph.link(callerId, calleeId, counts[i]);
             }
         }
 
-        return links;
+        return graph.build();
     }
 
-
     /**
      * Group clusters using hierarchicClustering and the Matrix to detect the closest entities.
      *
@@ -185,13 +313,44 @@ public class Compute {
 
         //setting up the clusterManager
         ClusterManager<String> clusterManager =
-                new ClusterManager<>(clusters, defaultMatrix.getMatrix(), defaultMatrix.getTotal());
+                new ClusterManager<>(clusters, defaultMatrix);
 
         // making the tree
-        while (clusterManager.getClusters().size() > 1) {
-            int[] closestPair = clusterManager.getClosestPairId();
-            clusterManager.initSimilarity(closestPair[0], closestPair[1]);
-            clusterManager.updateMatrix(closestPair[0], closestPair[1]);
+        while (clusterManager.size() > 1) {
+            clusterManager.merge();
+        }
+
+        return clusterManager.getClusters().get(0);
+    }
+
+    /**
+     * Same tree as {@link #hierarchicClustering(Matrix)}. When at least a fifth of the pairs of classes are coupled,
+     * the similarities are kept in a dense triangle scanned by several threads, smaller than the lists and the heap of
+     * the pairs.
+     *
+     * @param defaultMatrix the reference matrix
+     * @param threads       number of threads scanning the dense triangle
+     * @return the clusterTree;
+     */
+    public static Cluster<String> hierarchicClustering(Matrix defaultMatrix, int threads) {
+        long pairs = (long) defaultMatrix.size() * (defaultMatrix.size() - 1) / 2;
+        if (5L * defaultMatrix.numberOfCells() < pairs || pairs > Integer.MAX_VALUE - 8) {
+            return hierarchicClustering(defaultMatrix);
+        }
+
+        ArrayList<Cluster<String>> clusters = new ArrayList<>(defaultMatrix.getNames().length);
+        for (String className : defaultMatrix.getNames()) {
+            clusters.add(new Cluster<>(clusters.size(), className));
+        }
+
+        TriangularClusterManager<String> clusterManager =
+                new TriangularClusterManager<>(clusters, defaultMatrix, threads);
+        try {
+            while (clusterManager.size() > 1) {
+                clusterManager.merge();
+            }
+        } finally {
+            clusterManager.shutdown();
         }
 
         return clusterManager.getClusters().get(0);
@@ -204,25 +363,76 @@ public class Compute {
      * <p>
      * For classes named A and B, takes all the method invocations of A in B and B in A, sum it and returns a matrix representing this association.
      *
+     * @param symbols table the names of the classes are interned in
      * @param classes list of classes
      * @param methods list of methods
      * @return a matrix representing all the coupling between the classes
      */
-    public static Matrix classCoupling(List<TypeDeclarationInfo> classes,
+    public static Matrix classCoupling(SymbolTable symbols,
+                                       List<TypeDeclarationInfo> classes,
                                        List<MethodDeclarationInfo> methods) {
+        Matrix matrix = emptyCoupling(symbols, classes);
+        couple(matrix, methods, 0, methods.size());
+
+        matrix.generateTable();
 
-        ArrayList<String> classNames = new ArrayList<>(classes.size());
+        return matrix;
+    }
 
-        for (TypeDeclarationInfo aClass : classes) {
-            classNames.add(aClass.getFullName());
+    /**
+     * Same as {@link #classCoupling(SymbolTable, List, List)}, the methods are split between the workers of a fork-join
+     * pool.
+     * <p>
+     * Each task counts its methods in its own partial matrix, without any lock, the partial matrices are then summed
+     * two by two. The sums do not depend on the order, the matrix is the same as the sequential one.
+     *
+     * @param symbols table the names of the classes are interned in
+     * @param classes list of classes
+     * @param methods list of methods
+     * @param threads number of workers
+     * @return a matrix representing all the coupling between the classes
+     */
+    public static Matrix classCoupling(SymbolTable symbols,
+                                       List<TypeDeclarationInfo> classes,
+                                       List<MethodDeclarationInfo> methods,
+                                       int threads) {
+        if (threads <= 1) {
+            return classCoupling(symbols, classes, methods);
         }
 
-        // we extract classnames
-        Matrix matrix = new Matrix(classNames);
+        Matrix empty = emptyCoupling(symbols, classes);
+        int threshold = Math.max(256, methods.size() / (4 * threads));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Matrix matrix = pool.invoke(new CouplingTask(empty, methods, 0, methods.size(), threshold));
+            matrix.generateTable();
 
-        for (MethodDeclarationInfo callee : methods) {
-            for (MethodInvocationInfo caller : callee.getMethodCalls()) {
-                matrix.increment(callee.getParent().getFullName(), caller.getClassFullName());
+            return matrix;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Same as {@link #classCoupling(SymbolTable, List, List)}, counted on the links of the class graph built on the
+     * qualified names (see {@link CallGraphs#getQualifiedClassGraph()}) instead of on the invocations. Used when the
+     * graph is merged from partial graphs and the invocations are not known anymore.
+     *
+     * @param symbols             table the names of the classes are interned in
+     * @param classes             list of classes
+     * @param qualifiedClassGraph class graph keyed by qualified names
+     * @return a matrix representing all the coupling between the classes
+     */
+    public static Matrix classCoupling(SymbolTable symbols,
+                                       List<TypeDeclarationInfo> classes,
+                                       Graph qualifiedClassGraph) {
+        Matrix matrix = emptyCoupling(symbols, classes);
+        for (int node = 0; node < qualifiedClassGraph.size(); node++) {
+            for (int link = qualifiedClassGraph.linksFrom(node); link < qualifiedClassGraph.linksTo(node); link++) {
+                matrix.increment(qualifiedClassGraph.getSymbol(node),
+                                 qualifiedClassGraph.getSymbol(qualifiedClassGraph.getTarget(link)),
+                                 qualifiedClassGraph.getWeight(link));
             }
         }
 
@@ -231,47 +441,68 @@ public class Compute {
         return matrix;
     }
 
-    public static List<String> dendrogramNodes(int nodeQuantity, Cluster<String> cluster) {
-        LinkedList<Cluster<String>> inputList = new LinkedList<>();
-        inputList.add(cluster);
+    private static Matrix emptyCoupling(SymbolTable symbols, List<TypeDeclarationInfo> classes) {
+        int[] classNames = new int[classes.size()];
 
-        return queueIteration(inputList, (queue, item, list) -> {
-            int id = item.getName();
-            String name;
+        for (int i = 0; i < classNames.length; i++) {
+            classNames[i] = classes.get(i).getFullNameId();
+        }
 
-            if (item.isLeaf()) {
-                name = item.getObject();
-            } else {
-                name = String.valueOf(item.getSimilarity());
+        // we extract classnames
+        return new Matrix(symbols, classNames);
+    }
 
-                queue.add(item.getFirst());
-                queue.add(item.getLast());
+    /**
+     * Counts the invocations of the methods from index <tt>from</tt> to <tt>to - 1</tt>
+     */
+    private static void couple(Matrix matrix, List<MethodDeclarationInfo> methods, int from, int to) {
+        for (int m = from; m < to; m++) {
+            MethodDeclarationInfo callee = methods.get(m);
+            List<MethodInvocationInfo> callers = callee.getMethodCalls();
+            int[] counts = callee.getCallCounts();
+            for (int i = 0; i < callers.size(); i++) {
+                matrix.increment(callee.getParent().getFullNameId(), callers.get(i).getClassFullNameId(), counts[i]);
             }
-
-            list.add("{\"id\":" + id + ", " + "\"name\": \"" + name + "\", " + "\"own\": " + true + "}");
-        });
+        }
     }
 
-    public static List<String> dendrogramLinks(Cluster<String> cluster) {
-        LinkedList<Cluster<String>> inputList = new LinkedList<>();
-        inputList.add(cluster);
+    /**
+     * Counts a range of methods, split in two as long as it is bigger than the threshold
+     */
+    private static class CouplingTask extends RecursiveTask<Matrix> {
+        private final Matrix empty;
+        private final List<MethodDeclarationInfo> methods;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        CouplingTask(Matrix empty, List<MethodDeclarationInfo> methods, int from, int to, int threshold) {
+            this.empty = empty;
+            this.methods = methods;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
 
-        return queueIteration(inputList, (queue, item, output) -> {
-            if (item.isLeaf()) {
-                return;
+        @Override
+        protected Matrix compute() {
+            if (to - from <= threshold) {
+                Matrix partial = empty.partial();
+                couple(partial, methods, from, to);
+
+                return partial;
             }
 
-            Cluster<String> first = item.getFirst();
-            Cluster<String> last = item.getLast();
+            int middle = (from + to) >>> 1;
+            CouplingTask left = new CouplingTask(empty, methods, from, middle, threshold);
+            left.fork();
+            Matrix right = new CouplingTask(empty, methods, middle, to, threshold).compute();
+            Matrix matrix = left.join();
 
-            queue.add(first);
-            queue.add(last);
+            matrix.addAll(right);
 
-            output.add("{\"source\":" + item.getName() + ", " +
-                               "\"target\": " + first.getName() + ", " + "\"str\": " + 1 + "}");
-            output.add("{\"source\":" + item.getName() + ", " +
-                               "\"target\": " + last.getName() + ", " + "\"str\": " + 1 + "}");
-        });
+            return matrix;
+        }
     }
 
     /**
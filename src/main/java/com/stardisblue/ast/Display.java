@@ -1,5 +1,6 @@
 package com.stardisblue.ast;
 
+import com.stardisblue.ast.structure.Components;
 import com.stardisblue.ast.structure.Matrix;
 
 import java.io.File;
@@ -68,9 +69,59 @@ public class Display {
         paragraph("> " + bockquote);
     }
 
+    /**
+     * Displays the matrix as a table, each row is formatted when it is written
+     *
+     * @param title  title of the section
+     * @param matrix the matrix
+     */
     public static void matrix(String title, Matrix matrix) {
         title(title, 2);
-        table(matrix.getTable());
+
+        String[] names = matrix.getNames();
+        StringBuilder st = new StringBuilder("| ");
+        for (String name : names) {
+            st.append(" | ").append(name);
+        }
+        line(st.append(" |").toString());
+
+        st.setLength(0);
+        st.append("| ---");
+        for (int i = 0; i < names.length; i++) {
+            st.append(" | ---");
+        }
+        line(st.append(" |").toString());
+
+        matrix.forEachRow((row, i) -> {
+            st.setLength(0);
+            st.append("| ").append(names[i]);
+            for (int value : row) {
+                st.append(" | ").append(matrix.format(value));
+            }
+            line(st.append(" |").toString());
+        });
+        newline();
+    }
+
+    /**
+     * Displays only the pairs that have invocations, each one once
+     *
+     * @param title  title of the section
+     * @param matrix the matrix
+     */
+    public static void matrixEdges(String title, Matrix matrix) {
+        title(title, 2);
+        blockquote("Number of pairs : " + matrix.numberOfCells());
+
+        String[] names = matrix.getNames();
+        int[] columns = matrix.getColumns();
+        int[] values = matrix.getValues();
+        for (int row = 0; row < matrix.size(); row++) {
+            for (int cell = matrix.rowFrom(row); cell < matrix.rowTo(row); cell++) {
+                item(names[row] + " - " + names[columns[cell]] + " : " + matrix.format(values[cell]));
+            }
+        }
+        newline();
     }
 
     public static void table(String[][] table) {
@@ -87,11 +138,13 @@ public class Display {
     }
 
     public static void row(String[] row) {
-        String strRow = "| " + String.join(" | ", row) + " |";
+        line("| " + String.join(" | ", row) + " |");
+    }
 
-        System.out.println(strRow);
+    private static void line(String line) {
+        System.out.println(line);
 
-        output.println(strRow);
+        output.println(line);
     }
 
     public static <T> void ul(List<T> array, Function<T, String> display) {
@@ -117,6 +170,21 @@ public class Display {
         output.println(listItem);
     }
 
+    /**
+     * Displays the strongly connected components of more than one node, and the size of the condensation
+     *
+     * @param title      title of the section
+     * @param components the components of a graph
+     */
+    public static void cycles(String title, Components components) {
+        List<Integer> cycles = components.cycles();
+
+        title(title, 2);
+        blockquote("Number of cycles : " + cycles.size() + ", " + components.size() + " component(s) and " +
+                           components.numberOfLinks() + " link(s) between them");
+        ul(cycles, c -> components.getSize(c) + " : " + String.join(", ", components.getNames(c)));
+    }
+
     public static void json(String title, List<String> nodes, List<String> links) {
         title(title, 2);
         codeBlock("json", "{\"nodes\":[" + String.join(",", nodes) + "], " +
@@ -142,7 +210,16 @@ public class Display {
         output.println();
     }
 
+    /**
+     * Sets the file the report is written to, the previous one is closed
+     *
+     * @param output path of the report
+     * @throws FileNotFoundException if the file cannot be created
+     */
     public static void setOutput(String output) throws FileNotFoundException {
+        if (Display.output != null) {
+            Display.output.close();
+        }
         Display.output = new PrintStream(new File(output));
     }
 }
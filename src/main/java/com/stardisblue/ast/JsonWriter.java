@@ -0,0 +1,201 @@
+package com.stardisblue.ast;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes json as it goes, nothing is kept in memory apart from the nesting of the current value.
+ * <p>
+ * Commas are inserted automatically, names and strings are escaped.
+ */
+public class JsonWriter implements Closeable, Flushable {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+
+    /**
+     * foreach opened object or array, if a value was already written in it
+     */
+    private boolean[] hasValue = new boolean[8];
+    private int depth = 0;
+    /**
+     * a name was just written, the next value does not need a comma
+     */
+    private boolean afterName = false;
+
+    /**
+     * @param out where the json is written, should be buffered
+     */
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * @param name name of the next member of the current object
+     * @return this writer
+     * @throws IOException if the output cannot be written
+     */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        string(out, name);
+        out.write(':');
+        afterName = true;
+
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        separate();
+        string(out, value);
+
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        separate();
+        out.write(Double.isNaN(value) || Double.isInfinite(value) ? "null" : stripZero(Double.toString(value)));
+
+        return this;
+    }
+
+    public JsonWriter value(float value) throws IOException {
+        separate();
+        out.write(Float.isNaN(value) || Float.isInfinite(value) ? "null" : stripZero(Float.toString(value)));
+
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        out.write(value ? "true" : "false");
+
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        separate();
+        out.write(bracket);
+
+        if (depth == hasValue.length) {
+            hasValue = java.util.Arrays.copyOf(hasValue, depth * 2);
+        }
+        hasValue[depth++] = false;
+
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        depth--;
+        out.write(bracket);
+
+        return this;
+    }
+
+    /**
+     * Writes the comma separating this value from the previous one
+     */
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+
+        if (depth > 0) {
+            if (hasValue[depth - 1]) {
+                out.write(',');
+            }
+            hasValue[depth - 1] = true;
+        }
+    }
+
+    private static String stripZero(String number) {
+        // 1.0 is written 1 like any json number would be
+        return number.endsWith(".0") ? number.substring(0, number.length() - 2) : number;
+    }
+
+    /**
+     * @param value a string
+     * @return the string as a json literal, with its quotes
+     */
+    public static String quote(String value) {
+        StringBuilder st = new StringBuilder(value.length() + 2);
+        try {
+            string(st, value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // a StringBuilder does not throw
+        }
+
+        return st.toString();
+    }
+
+    private static void string(Appendable out, String value) throws IOException {
+        out.append('"');
+
+        int last = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') continue;
+
+            out.append(value, last, i);
+            last = i + 1;
+
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default: // other control characters and the line separators javascript does not accept
+                    out.append("\\u").append(HEX[c >> 12 & 0xf]).append(HEX[c >> 8 & 0xf])
+                            .append(HEX[c >> 4 & 0xf]).append(HEX[c & 0xf]);
+            }
+        }
+
+        out.append(value, last, value.length()).append('"');
+    }
+}
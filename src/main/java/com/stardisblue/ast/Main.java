@@ -2,24 +2,33 @@ package com.stardisblue.ast;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import com.stardisblue.ast.cache.FactCache;
+import com.stardisblue.ast.export.BinaryExport;
+import com.stardisblue.ast.index.ClasspathIndex;
 import com.stardisblue.ast.info.MethodDeclarationInfo;
 import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.resolver.InvocationResolver;
+import com.stardisblue.ast.server.AnalysisServer;
+import com.stardisblue.ast.shard.ShardRunner;
+import com.stardisblue.ast.structure.CallGraphs;
 import com.stardisblue.ast.structure.Cluster;
+import com.stardisblue.ast.structure.Components;
 import com.stardisblue.ast.structure.Graph;
 import com.stardisblue.ast.structure.Matrix;
-import com.stardisblue.ast.visitor.TypeDeclarationVisitor;
+import com.stardisblue.ast.structure.SymbolTable;
 import com.stardisblue.logging.Logger;
 import com.stardisblue.utils.ListUtils;
 import org.apache.commons.io.FileUtils;
-import org.eclipse.jdt.core.dom.AST;
-import org.eclipse.jdt.core.dom.ASTParser;
-import org.eclipse.jdt.core.dom.CompilationUnit;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
@@ -51,9 +60,62 @@ public class Main {
     @Parameter(names = {"-f", "--field-percentage"}, description = "Percentage of top classes with most fields")
     private int percentageFields = 10;
 
+    @Parameter(names = {"-t", "--threads"}, description = "Number of threads used to parse the files")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {"-c", "--cache"}, description = "Cache file, only the files that changed are parsed again")
+    private String cachePath;
+
+    @Parameter(names = "--fast", description = "Parses without bindings, invocations are resolved using the " +
+            "project classes and the imports, the ones that cannot be found are marked as external")
+    private boolean fast = false;
+
+    @Parameter(names = {"-i", "--index"}, description = "Index of the java runtime and of the classpath, " +
+            "built once and used in fast mode to resolve the external invocations")
+    private String indexPath;
+
+    @Parameter(names = {"-w", "--watch"}, description = "Keeps running, the files that changed are parsed again " +
+            "and the outputs are rewritten after each save")
+    private boolean watch = false;
+
+    @Parameter(names = {"-s", "--serve"}, description = "Keeps the analyzer loaded and answers the queries on " +
+            "http://localhost:<port>, see AnalysisServer for the endpoints")
+    private Integer servePort;
+
+    @Parameter(names = "--serve-root", description = "Folder whose subfolders the queries can analyze, " +
+            "can be repeated, only the sourcepath by default")
+    private List<String> serveRoots = new ArrayList<>();
+
+    @Parameter(names = "--serve-projects", description = "Number of projects the server keeps in memory, " +
+            "the least recently queried one is forgotten")
+    private int serveProjects = 4;
+
+    @Parameter(names = "--shards", description = "Number of worker processes the files are split between, " +
+            "each one parses its part of the files and reduces it to partial call graphs. With --fast, --cache, " +
+            "--watch or a query the facts of all the files are read back instead, only the memory of the ASTs is " +
+            "split")
+    private int shards = 0;
+
+    @Parameter(names = {"-b", "--binary"}, description = "Also writes the graphs, the matrix and the dendrogram " +
+            "in a binary file that can be memory-mapped, see BinaryExport for the layout")
+    private String binaryPath;
+
+    @Parameter(names = "--binary-to-json", description = "Converts a binary export to the json files and exits")
+    private String binaryToJson;
+
+    @Parameter(names = "--matrix-format", description = "How the coupling matrix is written : table in the " +
+            "report, edges (only the pairs that have invocations) or csv (in class-coupling.csv)")
+    private String matrixFormat = "table";
+
+    private final QueryCommand query = new QueryCommand();
+
     public Main() {
         classpaths = new ArrayList<>();
-        classpaths.add(System.getProperty("java.home") + "/lib/rt.jar");
+        // since java 9 there is no rt.jar, the runtime classes are found by JDT and by the index
+        File runtime = new File(System.getProperty("java.home") + "/lib/rt.jar");
+        if (runtime.isFile()) {
+            classpaths.add(runtime.getPath());
+        }
     }
 
 
@@ -64,7 +126,7 @@ public class Main {
      */
     public static void main(String... args) {
         Main main = new Main();
-        JCommander jcommander = JCommander.newBuilder().addObject(main).build();
+        JCommander jcommander = JCommander.newBuilder().addObject(main).addCommand(main.query).build();
         jcommander.parse(args);
         try {
             main.run(jcommander);
@@ -83,33 +145,91 @@ public class Main {
             Logger.enable();
         }
 
-        // setting up result file
-        Display.setOutput(output);
+        // checked before anything is parsed
+        if (!matrixFormat.equals("table") && !matrixFormat.equals("edges") && !matrixFormat.equals("csv")) {
+            throw new IllegalArgumentException("unknown matrix format " + matrixFormat +
+                                                       ", expected table, edges or csv");
+        }
+
+        if (binaryToJson != null) { // nothing is parsed
+            BinaryExport.open(new File(binaryToJson)).writeJson(new File(System.getProperty("user.dir")));
+            return;
+        }
+
+        if (servePort != null) { // the server keeps running until the process is stopped
+            ClasspathIndex index = fast && indexPath != null ? ClasspathIndex.open(new File(indexPath), classpaths) : null;
+            new AnalysisServer(classpaths, threads, fast, index, projectSourcePath, serveRoots, serveProjects)
+                    .start(servePort);
+            return;
+        }
 
         /*
          * Setting up AST
          */
         final File folder = new File(projectSourcePath);
 
-        Collection<File> javaFiles = FileUtils.listFiles(folder, new String[]{"java"}, true);
+        // only the report is written, the invocations of the shards are never held by this process
+        if (shards > 1 && !fast && cachePath == null && !watch && jcommander.getParsedCommand() == null) {
+            SymbolTable symbols = new SymbolTable();
+            ShardRunner.Reduction reduction = new ShardRunner(classpaths, projectSourcePath, shards, threads, false)
+                    .reduce(new ArrayList<>(FileUtils.listFiles(folder, new String[]{"java"}, true)), symbols);
+            report(symbols, reduction.getClasses(), null, reduction.getCallGraphs());
+            return;
+        }
+
+        // the facts of the files that did not change are taken from the cache
+        FactCache cache = null;
+        if (cachePath != null) {
+            cache = new FactCache(new File(cachePath), classpaths, !fast);
+            cache.load();
+        }
 
-        List<TypeDeclarationInfo> classes = new ArrayList<>(javaFiles.size());
+        // in fast mode, the invocations are resolved using the project classes and the index
+        InvocationResolver resolver = null;
+        if (fast) {
+            resolver = new InvocationResolver(indexPath == null ? null :
+                                                      ClasspathIndex.open(new File(indexPath), classpaths));
+        }
 
-        // constructing class structure
-        try {
-            for (File file : javaFiles) {
-                String content = FileUtils.readFileToString(file, UTF_8);
-                CompilationUnit compilationUnit = parse(content);
+        // constructing class structure, the environment is set up once per thread
+        Parser parser = new Parser(classpaths, projectSourcePath, threads, cache, resolver);
+        if (shards > 1) {
+            parser.setShards(new ShardRunner(classpaths, projectSourcePath, shards, threads, fast));
+        }
+        Workspace workspace = new Workspace(folder, parser);
+        workspace.refresh();
 
-                TypeDeclarationVisitor typeDeclarationVisitor = new TypeDeclarationVisitor();
-                compilationUnit.accept(typeDeclarationVisitor);
+        if (cache != null) {
+            cache.save();
+        }
 
-                classes.addAll(typeDeclarationVisitor.infos(compilationUnit));
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        if ("query".equals(jcommander.getParsedCommand())) { // answers instead of the report
+            query.run(workspace.getSymbols(), workspace.classes());
+            return;
         }
 
+        report(workspace.getSymbols(), workspace.classes(), cache, null);
+
+        if (watch) {
+            watch(workspace, cache);
+        }
+    }
+
+    /**
+     * Writes the report and the json files
+     *
+     * @param symbols    table the names of the classes and methods are interned in
+     * @param classes    classes of the project
+     * @param cache      fact cache, null if disabled
+     * @param callGraphs the graphs and the matrix when they are already merged from the shards, null to build them
+     *                   from the invocations of the classes
+     * @throws IOException if an output cannot be written
+     */
+    private void report(SymbolTable symbols, List<TypeDeclarationInfo> classes, FactCache cache,
+                        CallGraphs callGraphs) throws IOException {
+        // setting up result file
+        Display.setOutput(output);
+
         // All classes :
         // List<TypeDeclarationInfo> classes // already set up
         // All Methods
@@ -134,6 +254,9 @@ public class Main {
                 ListUtils.average(methods, MethodDeclarationInfo::numberOfLines));
         Display.item("Average number of fields/class : " +
                 ListUtils.average(classes, TypeDeclarationInfo::numberOfFields));
+        if (cache != null) {
+            Display.item("Cache : " + cache.hits() + " hit(s), " + cache.misses() + " miss(es)");
+        }
         Display.newline();
 
         /*
@@ -231,29 +354,42 @@ public class Main {
         /*
          * Method call graph
          */
-        // creation of the graph
-        Graph graph = Compute.methodGraph(methods);
-        // generate Json Structure
-        List<String> nodes = Compute.graphNodes(graph.getIds(), graph.getIsNodeInProject());
-        List<String> links = Compute.graphLinks(graph.getLinkIds(), graph.getSourceCount());
+        // creation of the graphs and of the coupling matrix, in one pass over the invocations
+        if (callGraphs == null) {
+            long start = System.currentTimeMillis();
+            callGraphs = Compute.callGraphs(symbols, classes, methods, threads);
+            Logger.println("Call graphs", (System.currentTimeMillis() - start) + " ms", Logger.DEBUG);
+        }
+
+        Graph graph = callGraphs.getMethodGraph();
+        logFootprint("Method graph", graph);
         // display
         Display.title("MethodCall Json graph", 2);
         Display.blockquote("written in `method-call-output.json`");
         // write
-        Write.json("method-call-output.json", nodes, links);
+        Write.graph("method-call-output.json", graph);
 
         /*
          * Class call graph
          */
-        Graph classGraph = Compute.classGraph(methods);
-        // generate Json Structure
-        List<String> classNodes = Compute.graphNodes(classGraph.getIds(), classGraph.getIsNodeInProject());
-        List<String> classLinks = Compute.graphLinks(classGraph.getLinkIds(), classGraph.getSourceCount());
+        Graph classGraph = callGraphs.getClassGraph();
+        logFootprint("Class graph", classGraph);
         // display
         Display.title("ClassCall Json graph", 2);
         Display.blockquote("written in `class-call-output.json`");
         // write
-        Write.json("class-call-output.json", classNodes, classLinks);
+        Write.graph("class-call-output.json", classGraph);
+
+        /*
+         * Dependency cycles, on the qualified names so that classes sharing a simple name are not merged
+         */
+        Components classComponents = new Components(callGraphs.getQualifiedClassGraph(), threads);
+        Display.cycles("Class dependency cycles", classComponents);
+        Display.blockquote("condensation written in `class-condensation.json`");
+        Write.condensation("class-condensation.json", classComponents);
+
+        Components packageComponents = new Components(callGraphs.getPackageGraph(), threads);
+        Display.cycles("Package dependency cycles", packageComponents);
 
 
         /*
@@ -261,54 +397,125 @@ public class Main {
          *
          * class coupling matrix
          */
-        Matrix matrix = Compute.classCoupling(classes, methods);
+        Matrix matrix = callGraphs.getClassCoupling();
         // display
-        Display.matrix("Class coupling matrix", matrix);
+        if (matrixFormat.equals("edges")) {
+            Display.matrixEdges("Class coupling pairs", matrix);
+        } else if (matrixFormat.equals("csv")) {
+            Display.title("Class coupling matrix", 2);
+            Display.blockquote("written in `class-coupling.csv`");
+            Write.csv("class-coupling.csv", matrix);
+        } else {
+            Display.matrix("Class coupling matrix", matrix);
+        }
 
         /*
          * Hierarchic Clustering
          */
-        Cluster<String> cluster = Compute.hierarchicClustering(matrix);
-        List<String> dendrogramNodes = Compute.dendrogramNodes(classes.size(), cluster);
-        List<String> dendrogramLinks = Compute.dendrogramLinks(cluster);
+        Cluster<String> cluster = Compute.hierarchicClustering(matrix, threads);
         // display
         Display.title("Dendrogram Cluster graph", 2);
         Display.blockquote("written in `dendogram-output.json`");
         // write
-        Write.json("dendogram-output.json", dendrogramNodes, dendrogramLinks);
+        Write.dendrogram("dendogram-output.json", cluster, Collections.singletonList(cluster));
         /*
          * Cluster Selection
          */
         List<Cluster<String>> partitions = Compute.clusterSelection(cluster);
-        List<String> partitionedLinks = new ArrayList<>();
-        for (Cluster<String> partition : partitions) {
-            partitionedLinks.addAll(Compute.dendrogramLinks(partition));
-        }
         // display
         Display.title("Dendrogram Partition graph", 2);
         Display.blockquote("written in `dendogram-partition.json`");
         // write
-        Write.json("dendogram-partition.json", dendrogramNodes, partitionedLinks);
+        Write.dendrogram("dendogram-partition.json", cluster, partitions);
+
+        if (binaryPath != null) {
+            BinaryExport.write(new File(binaryPath), graph, classGraph, matrix, cluster);
+            Display.title("Binary export", 2);
+            Display.blockquote("written in `" + binaryPath + "`");
+        }
+
+        Logger.println("Peak heap usage", (peakHeapUsage() >> 20) + " MB", Logger.INFO);
     }
 
     /**
-     * @param fileContent the content of a javafile
-     * @return The apporpriate CompilationUnit
+     * Watches the sources, each time files are saved only they are parsed again and the outputs are rewritten
+     *
+     * @param workspace facts of the project
+     * @param cache     fact cache, null if disabled
+     * @throws IOException if the sources cannot be watched or an output cannot be written
      */
-    private CompilationUnit parse(String fileContent) {
-        ASTParser parser = ASTParser.newParser(AST.JLS9);
-        parser.setKind(ASTParser.K_COMPILATION_UNIT);
-        parser.setResolveBindings(true); // we need bindings later on
-        parser.setBindingsRecovery(true); // we need bindings later on
+    private void watch(Workspace workspace, FactCache cache) throws IOException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            register(watcher, workspace.getFolder().toPath());
+            Logger.println("Watching", workspace.getFolder().getPath(), Logger.INFO);
+
+            while (true) {
+                WatchKey key = watcher.take();
+
+                // an editor saving a file triggers several events, they are all handled at once
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() != StandardWatchEventKinds.ENTRY_CREATE) continue;
+
+                        Path created = ((Path) key.watchable()).resolve((Path) event.context());
+                        if (Files.isDirectory(created)) {
+                            register(watcher, created);
+                        }
+                    }
+                    key.reset();
+                } while ((key = watcher.poll(50, TimeUnit.MILLISECONDS)) != null);
+
+                long start = System.currentTimeMillis();
+                int changed = workspace.refresh();
+                if (changed == 0) continue;
+
+                if (cache != null) {
+                    cache.save();
+                }
+                report(workspace.getSymbols(), workspace.classes(), cache, null);
+
+                Logger.println("Refreshed", changed + " file(s) in " +
+                        (System.currentTimeMillis() - start) + " ms", Logger.INFO);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        //parser.setCompilerOptions(JavaCore.getOptions());
+    /**
+     * Registers the folder and all its sub folders
+     *
+     * @param watcher watch service
+     * @param folder  root folder
+     * @throws IOException if a folder cannot be registered
+     */
+    private static void register(WatchService watcher, Path folder) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
 
-        parser.setUnitName("stardisblue");
+    private static void logFootprint(String name, Graph graph) {
+        Logger.println(name, graph.size() + " node(s), " + graph.numberOfLinks() + " link(s), " +
+                (graph.footprint() >> 10) + " KB", Logger.DEBUG);
+    }
 
-        String[] sources = {projectSourcePath};
+    /**
+     * @return the sum of the peak usage of every heap memory pool, in bytes
+     */
+    private static long peakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
 
-        parser.setEnvironment(classpaths.toArray(new String[]{}), sources, new String[]{"UTF-8"}, true);
-        parser.setSource(fileContent.toCharArray()); // set source
-        return (CompilationUnit) parser.createAST(null /* IProgressMonitor */); // parse
+        return peak;
     }
 }
@@ -0,0 +1,342 @@
+package com.stardisblue.ast;
+
+import com.stardisblue.ast.cache.DeclarationChanges;
+import com.stardisblue.ast.cache.FactCache;
+import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.resolver.InvocationResolver;
+import com.stardisblue.ast.shard.ShardRunner;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.ast.visitor.InvocationCache;
+import com.stardisblue.ast.visitor.TypeDeclarationVisitor;
+import com.stardisblue.logging.Logger;
+import com.stardisblue.utils.ListUtils;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Batch parser, the binding environment (classpath and sourcepath) is built once per worker.
+ * <p>
+ * The files are spread over the workers, each worker owns its own parser and visitors.
+ * When a cache is given, the files that did not change are not parsed again, unless their invocations are binded to a
+ * declaration that changed.
+ * In fast mode, bindings are not resolved by JDT, the invocations are resolved using the project classes instead.
+ * With shards, the files are parsed by worker processes.
+ */
+public class Parser {
+
+    private final String[] classpaths;
+    private final String[] sources;
+    private final int threads;
+    private final FactCache cache;
+    private final InvocationResolver resolver;
+    private final boolean fast;
+    /**
+     * names of the facts of this project, the ids of the graphs and of the matrix refer to it
+     */
+    private final SymbolTable symbols = new SymbolTable();
+    /**
+     * targets of the binded invocations, shared by the workers during a parse
+     */
+    private final InvocationCache invocations = new InvocationCache(symbols);
+
+    private ShardRunner shards;
+
+    /**
+     * @param classpaths classpath entries used to resolve bindings
+     * @param sourcePath root of the analysed sources
+     * @param threads    number of workers parsing in parallel
+     */
+    public Parser(List<String> classpaths, String sourcePath, int threads) {
+        this(classpaths, sourcePath, threads, null, null);
+    }
+
+    /**
+     * @param classpaths classpath entries used to resolve bindings
+     * @param sourcePath root of the analysed sources
+     * @param threads    number of workers parsing in parallel
+     * @param cache      facts of the previous runs, null to parse every file
+     * @param resolver   resolves the invocations in fast mode, null to let JDT resolve the bindings
+     */
+    public Parser(List<String> classpaths, String sourcePath, int threads, FactCache cache,
+                  InvocationResolver resolver) {
+        this.classpaths = classpaths.toArray(new String[]{});
+        this.sources = new String[]{sourcePath};
+        this.threads = Math.max(1, threads);
+        this.cache = cache;
+        this.resolver = resolver;
+        this.fast = resolver != null;
+    }
+
+    /**
+     * Parses the files in worker processes instead of in this one
+     *
+     * @param shards runs the worker processes, null to parse in this process
+     */
+    public void setShards(ShardRunner shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Parses all the files and visits each CompilationUnit as soon as it is produced
+     *
+     * @param javaFiles files to parse
+     * @return the classes found, in the same order as the files
+     */
+    public List<TypeDeclarationInfo> parse(Collection<File> javaFiles) {
+        List<List<TypeDeclarationInfo>> parsed = parseEach(new ArrayList<>(javaFiles));
+        List<TypeDeclarationInfo> classes = ListUtils.extract(parsed, l -> l);
+
+        resolve(classes);
+
+        return classes;
+    }
+
+    /**
+     * In fast mode, resolves the invocations now that all the classes of the project are known
+     *
+     * @param classes all the classes of the project
+     */
+    public void resolve(List<TypeDeclarationInfo> classes) {
+        if (fast) {
+            resolver.resolve(classes);
+        }
+    }
+
+    /**
+     * Parses all the files, the results are kept per file
+     *
+     * @param javaFiles files to parse
+     * @return foreach file (same index), the classes it declares
+     */
+    public List<List<TypeDeclarationInfo>> parseEach(List<File> javaFiles) {
+        if (cache == null) {
+            return parseFiles(javaFiles);
+        }
+
+        List<List<TypeDeclarationInfo>> parsed = new ArrayList<>(Collections.nCopies(javaFiles.size(), null));
+        List<File> missedFiles = new ArrayList<>();
+        List<Integer> missedIndexes = new ArrayList<>();
+
+        for (int i = 0; i < javaFiles.size(); i++) {
+            List<TypeDeclarationInfo> cached = null;
+            try {
+                cached = cache.get(javaFiles.get(i), symbols);
+            } catch (IOException e) {
+                Logger.println("Cache", javaFiles.get(i) + " cannot be read (" + e.getMessage() + ")",
+                               Logger.WARNING);
+            }
+
+            if (cached != null) {
+                parsed.set(i, cached);
+            } else {
+                missedFiles.add(javaFiles.get(i));
+                missedIndexes.add(i);
+            }
+        }
+
+        // only the files that changed are parsed
+        List<List<TypeDeclarationInfo>> reparsed = parseFiles(missedFiles);
+        DeclarationChanges changes = new DeclarationChanges();
+        for (int i = 0; i < missedFiles.size(); i++) {
+            if (!fast) {
+                List<TypeDeclarationInfo> previous = cache.previous(missedFiles.get(i), symbols);
+                if (previous != null) changes.before(previous);
+                changes.after(reparsed.get(i));
+            }
+
+            parsed.set(missedIndexes.get(i), reparsed.get(i));
+            cache.put(missedFiles.get(i), reparsed.get(i));
+        }
+
+        // with bindings, the cached facts invoking a changed declaration are out of date
+        if (!fast) {
+            for (List<TypeDeclarationInfo> forgotten : cache.forgotten(symbols)) {
+                changes.before(forgotten);
+            }
+
+            List<File> dependents = new ArrayList<>();
+            List<Integer> dependentIndexes = new ArrayList<>();
+            HashSet<Integer> missed = new HashSet<>(missedIndexes);
+            for (int i = 0; i < javaFiles.size(); i++) {
+                if (!missed.contains(i) && changes.isUsedBy(parsed.get(i))) {
+                    dependents.add(javaFiles.get(i));
+                    dependentIndexes.add(i);
+                }
+            }
+
+            List<List<TypeDeclarationInfo>> rebinded = parseAgain(dependents);
+            for (int i = 0; i < dependents.size(); i++) {
+                parsed.set(dependentIndexes.get(i), rebinded.get(i));
+            }
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Parses the files even if their content did not change, the cache is updated
+     *
+     * @param javaFiles files whose facts are out of date
+     * @return foreach file (same index), the classes it declares
+     */
+    public List<List<TypeDeclarationInfo>> parseAgain(List<File> javaFiles) {
+        if (!javaFiles.isEmpty()) {
+            Logger.println("Parser", javaFiles.size() + " file(s) use a changed declaration, parsed again",
+                           Logger.INFO);
+        }
+
+        List<List<TypeDeclarationInfo>> parsed = parseFiles(javaFiles);
+        if (cache != null) {
+            for (int i = 0; i < javaFiles.size(); i++) {
+                cache.put(javaFiles.get(i), parsed.get(i));
+            }
+        }
+
+        return parsed;
+    }
+
+    /**
+     * @return the table the names of the facts are interned in, shared by every parse of this parser
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return if the invocations are resolved using the project classes instead of bindings
+     */
+    public boolean isFast() {
+        return fast;
+    }
+
+    /**
+     * Parses all the files on the workers
+     *
+     * @param javaFiles files to parse
+     * @return foreach file (same index), the classes it declares
+     */
+    private List<List<TypeDeclarationInfo>> parseFiles(List<File> javaFiles) {
+        if (javaFiles.isEmpty()) { // nothing changed, the environment is not set up for nothing
+            return new ArrayList<>();
+        }
+
+        if (!fast) { // the targets of the previous parse may have changed
+            invocations.clear();
+        }
+
+        if (shards != null) {
+            try {
+                return shards.parse(javaFiles, symbols);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<List<TypeDeclarationInfo>> parsed = new ArrayList<>(Collections.nCopies(javaFiles.size(), null));
+        int workers = Math.min(threads, javaFiles.size());
+
+        if (workers <= 1) {
+            parseAll(javaFiles, 0, 1, parsed);
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            List<Future<?>> futures = new ArrayList<>(workers);
+
+            // files are striped over the workers so that they get a similar amount of work
+            for (int worker = 0; worker < workers; worker++) {
+                int offset = worker;
+                futures.add(executor.submit(() -> parseAll(javaFiles, offset, workers, parsed)));
+            }
+
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Parsing has been interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Parsing failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // a file that could not be parsed does not declare anything
+        for (int i = 0; i < parsed.size(); i++) {
+            if (parsed.get(i) == null) {
+                parsed.set(i, Collections.emptyList());
+            }
+        }
+
+        if (!fast) {
+            invocations.log();
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Parses the files at index offset, offset + step, offset + 2 * step... in one batch
+     * <p>
+     * Each result is set at the index of its file, so that the merged order does not depend on the workers
+     *
+     * @param javaFiles all the files
+     * @param offset    index of the first file to parse
+     * @param step      distance between two files to parse
+     * @param parsed    where to put the results
+     */
+    private void parseAll(List<File> javaFiles, int offset, int step, List<List<TypeDeclarationInfo>> parsed) {
+        int size = (javaFiles.size() - offset + step - 1) / step;
+        String[] paths = new String[size];
+        String[] encodings = new String[size];
+        HashMap<String, Integer> indexes = new HashMap<>(size);
+
+        for (int i = 0, fileIndex = offset; i < size; i++, fileIndex += step) {
+            paths[i] = javaFiles.get(fileIndex).getAbsolutePath();
+            encodings[i] = "UTF-8";
+            indexes.put(paths[i], fileIndex);
+        }
+
+        // createASTs does not guarantee the order, results are put back in place using the index of the file
+        newParser().createASTs(paths, encodings, new String[]{}, new FileASTRequestor() {
+            @Override
+            public void acceptAST(String sourceFilePath, CompilationUnit compilationUnit) {
+                TypeDeclarationVisitor typeDeclarationVisitor = new TypeDeclarationVisitor(fast, invocations);
+                compilationUnit.accept(typeDeclarationVisitor);
+
+                parsed.set(indexes.get(sourceFilePath), typeDeclarationVisitor.infos(compilationUnit));
+            }
+        }, null /* IProgressMonitor */);
+    }
+
+    /**
+     * @return a parser sharing the classpath and sourcepath environment, without environment in fast mode
+     */
+    private ASTParser newParser() {
+        ASTParser parser = ASTParser.newParser(AST.JLS9);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+
+        if (fast) { // the environment is only used to resolve bindings
+            parser.setResolveBindings(false);
+            return parser;
+        }
+
+        parser.setResolveBindings(true); // we need bindings later on
+        parser.setBindingsRecovery(true); // we need bindings later on
+
+        parser.setEnvironment(classpaths, sources, new String[]{"UTF-8"}, true);
+
+        return parser;
+    }
+}
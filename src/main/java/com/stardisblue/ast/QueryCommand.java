@@ -0,0 +1,126 @@
+package com.stardisblue.ast;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.stardisblue.ast.info.MethodDeclarationInfo;
+import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.structure.Graph;
+import com.stardisblue.ast.structure.GraphQuery;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.utils.ListUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * <tt>query</tt> subcommand, answers questions about the call graph instead of writing the report.
+ * <p>
+ * Methods are named <tt>Class.method(Type, Type)</tt>, the parameters can be left out to match every overload.
+ * Classes are named by their simple name. Unlike the report, the instance creations, <tt>super</tt> invocations and
+ * method references are calls. In the method graph, a call may run any overrider of the invoked method.
+ */
+@Parameters(commandNames = "query", commandDescription = "Queries the call graph instead of writing the report")
+public class QueryCommand {
+
+    @Parameter(names = {"-g", "--graph"}, description = "graph queried : method or class")
+    private String graph = "method";
+
+    @Parameter(names = "--callers", description = "Displays what calls the given node, directly or not")
+    private List<String> callers = new ArrayList<>();
+
+    @Parameter(names = "--callees", description = "Displays what the given node calls, directly or not")
+    private List<String> callees = new ArrayList<>();
+
+    @Parameter(names = "--entry", description = "Entry point, displays what can be reached from all the entry points")
+    private List<String> entryPoints = new ArrayList<>();
+
+    @Parameter(names = "--dead", description = "Displays the project nodes never called, or not reachable from " +
+            "the entry points if there are some. Instance creations, super calls, method references and overriders " +
+            "of a called method count as calls, a method only called through a type outside the project " +
+            "(eg: Runnable.run) is still displayed")
+    private boolean dead = false;
+
+    /**
+     * Displays the answers on the standard output
+     *
+     * @param symbols table the names of the classes and methods are interned in
+     * @param classes classes of the project
+     */
+    public void run(SymbolTable symbols, List<TypeDeclarationInfo> classes) {
+        List<MethodDeclarationInfo> methods = ListUtils.extract(classes, TypeDeclarationInfo::getMethods);
+
+        GraphQuery query;
+        if (graph.equals("method")) {
+            query = dispatched(symbols, Compute.referenceGraph(symbols, methods, false), Compute.overrides(classes));
+        } else if (graph.equals("class")) {
+            query = new GraphQuery(Compute.referenceGraph(symbols, methods, true));
+        } else {
+            throw new IllegalArgumentException("unknown graph " + graph + ", expected method or class");
+        }
+
+        for (String name : callers) {
+            display("Callers of " + name, query, query.callers(found(query, name)));
+        }
+
+        for (String name : callees) {
+            display("Callees of " + name, query, query.callees(found(query, name)));
+        }
+
+        BitSet entries = new BitSet();
+        for (String name : entryPoints) {
+            entries.or(found(query, name));
+        }
+        if (!entryPoints.isEmpty()) {
+            display("Reachable from " + String.join(", ", entryPoints), query, query.reachable(entries));
+        }
+
+        if (dead) {
+            if (entryPoints.isEmpty()) {
+                display("Never called", query, query.neverCalled());
+            } else {
+                display("Not reachable from " + String.join(", ", entryPoints), query, query.unreachable(entries));
+            }
+        }
+    }
+
+    /**
+     * @param symbols   table the names of the methods are interned in
+     * @param graph     the method graph
+     * @param overrides symbol ids of each overridden method and its overrider
+     * @return the queries over the graph, the calls being dispatched to the overriders
+     */
+    private static GraphQuery dispatched(SymbolTable symbols, Graph graph, List<int[]> overrides) {
+        // node of each symbol, shifted by one so that 0 means absent
+        int[] nodes = new int[symbols.size()];
+        for (int node = 0; node < graph.size(); node++) {
+            nodes[graph.getSymbol(node)] = node + 1;
+        }
+
+        int[] overridden = new int[overrides.size()];
+        int[] overriders = new int[overrides.size()];
+        for (int i = 0; i < overrides.size(); i++) {
+            overridden[i] = nodes[overrides.get(i)[0]] - 1;
+            overriders[i] = nodes[overrides.get(i)[1]] - 1;
+        }
+
+        return new GraphQuery(graph, overridden, overriders);
+    }
+
+    private static BitSet found(GraphQuery query, String name) {
+        BitSet found = query.find(name);
+        if (found.isEmpty()) {
+            System.out.println("> no node named " + name);
+        }
+
+        return found;
+    }
+
+    private static void display(String title, GraphQuery query, BitSet nodes) {
+        System.out.println("## " + title + " (" + nodes.cardinality() + ")");
+        for (String name : query.names(nodes)) {
+            System.out.println("- " + name);
+        }
+        System.out.println();
+    }
+}
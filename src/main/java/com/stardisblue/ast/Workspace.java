@@ -0,0 +1,161 @@
+package com.stardisblue.ast;
+
+import com.stardisblue.ast.cache.DeclarationChanges;
+import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.utils.ListUtils;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Keeps the facts of each file of the project in memory, only the files that changed are parsed again.
+ * <p>
+ * With bindings, the files using a declaration of a changed file are parsed again too : a file invoking one of its
+ * methods, or invoking a method on what one of its methods returns or one of its fields holds, see
+ * {@link DeclarationChanges}.
+ */
+public class Workspace {
+
+    private final File folder;
+    private final Parser parser;
+
+    private final HashMap<String, FileFacts> facts = new HashMap<>();
+    private List<File> javaFiles = new ArrayList<>();
+
+    /**
+     * @param folder root of the analysed sources
+     * @param parser used to parse the files that changed
+     */
+    public Workspace(File folder, Parser parser) {
+        this.folder = folder;
+        this.parser = parser;
+    }
+
+    /**
+     * Lists the files again, parses the added and modified ones and forgets the deleted ones
+     *
+     * @return the number of files that were added, modified or deleted
+     */
+    public int refresh() {
+        List<File> listed = new ArrayList<>(FileUtils.listFiles(folder, new String[]{"java"}, true));
+
+        List<File> changed = new ArrayList<>();
+        HashSet<String> paths = new HashSet<>(listed.size());
+        for (File file : listed) {
+            String path = file.getAbsolutePath();
+            paths.add(path);
+
+            FileFacts known = facts.get(path);
+            if (known == null || known.lastModified != file.lastModified() || known.length != file.length()) {
+                changed.add(file);
+            }
+        }
+
+        // with bindings, the files that did not change may invoke a declaration that changed
+        boolean rebind = !parser.isFast() && !facts.isEmpty();
+        DeclarationChanges changes = new DeclarationChanges();
+
+        int deleted = facts.size();
+        Iterator<Map.Entry<String, FileFacts>> entries = facts.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, FileFacts> entry = entries.next();
+            if (!paths.contains(entry.getKey())) {
+                if (rebind) changes.before(entry.getValue().classes);
+                entries.remove();
+            }
+        }
+        deleted -= facts.size();
+
+        List<List<TypeDeclarationInfo>> parsed = parser.parseEach(changed);
+        for (int i = 0; i < changed.size(); i++) {
+            File file = changed.get(i);
+            FileFacts previous =
+                    facts.put(file.getAbsolutePath(), new FileFacts(file.lastModified(), file.length(), parsed.get(i)));
+
+            if (rebind) {
+                if (previous != null) changes.before(previous.classes);
+                changes.after(parsed.get(i));
+            }
+        }
+
+        if (rebind) {
+            rebind(changes, new HashSet<>(changed), listed);
+        }
+
+        javaFiles = listed;
+
+        return changed.size() + deleted;
+    }
+
+    /**
+     * Parses again the files that did not change but use a declaration that changed
+     *
+     * @param changes the declarations that changed
+     * @param changed the files already parsed
+     * @param listed  all the files of the project
+     */
+    private void rebind(DeclarationChanges changes, HashSet<File> changed, List<File> listed) {
+        if (changes.isEmpty()) return;
+
+        List<File> dependents = new ArrayList<>();
+        for (File file : listed) {
+            if (!changed.contains(file) && changes.isUsedBy(facts.get(file.getAbsolutePath()).classes)) {
+                dependents.add(file);
+            }
+        }
+
+        List<List<TypeDeclarationInfo>> parsed = parser.parseAgain(dependents);
+        for (int i = 0; i < dependents.size(); i++) {
+            File file = dependents.get(i);
+            facts.put(file.getAbsolutePath(), new FileFacts(file.lastModified(), file.length(), parsed.get(i)));
+        }
+    }
+
+    /**
+     * @return the classes of the project, in the order of the files
+     */
+    public List<TypeDeclarationInfo> classes() {
+        List<TypeDeclarationInfo> classes =
+                ListUtils.extract(javaFiles, file -> facts.get(file.getAbsolutePath()).classes);
+
+        // in fast mode, an invocation can target a class of another file, everything is resolved again
+        parser.resolve(classes);
+
+        return classes;
+    }
+
+    /**
+     * @return the files of the project, in the order they were listed
+     */
+    public List<File> getJavaFiles() {
+        return javaFiles;
+    }
+
+    /**
+     * @return the table the names of the facts are interned in
+     */
+    public SymbolTable getSymbols() {
+        return parser.getSymbols();
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    /**
+     * Used for saving the facts of a file and what identifies its version
+     */
+    private static class FileFacts {
+        final long lastModified;
+        final long length;
+        final List<TypeDeclarationInfo> classes;
+
+        FileFacts(long lastModified, long length, List<TypeDeclarationInfo> classes) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.classes = classes;
+        }
+    }
+}
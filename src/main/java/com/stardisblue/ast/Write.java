@@ -1,21 +1,215 @@
 package com.stardisblue.ast;
 
-import org.apache.commons.io.FileUtils;
+import com.stardisblue.ast.structure.Cluster;
+import com.stardisblue.ast.structure.Components;
+import com.stardisblue.ast.structure.GraphView;
+import com.stardisblue.ast.structure.Matrix;
 
-import java.io.File;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.List;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
- *
+ * Writes the json outputs as they are read from the structures, without building them in memory first
  */
 public class Write {
-    public static void json(String fileName, List<String> nodes, List<String> links) throws IOException {
-        File file = new File(fileName);
-        String data = "{\"nodes\":[" + String.join(",", nodes) + "], " +
-                "\"links\":[" + String.join(",", links) + "]}";
-        FileUtils.write(file, data, UTF_8);
+
+    /**
+     * @param fileName file to write
+     * @param graph    the graph, in memory or read from an export
+     * @throws IOException if the file cannot be written
+     */
+    public static void graph(String fileName, GraphView graph) throws IOException {
+        try (Writer out = Files.newBufferedWriter(Paths.get(fileName), UTF_8)) {
+            graph(out, graph);
+        }
+    }
+
+    /**
+     * Writes the nodes, in the order of their ids, and the links of the graph
+     *
+     * @param out   where the json is written, not closed
+     * @param graph the graph, its names are only looked up here
+     * @throws IOException if the json cannot be written
+     */
+    public static void graph(Writer out, GraphView graph) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("nodes").beginArray();
+
+        for (int node = 0; node < graph.size(); node++) {
+            // the json has an id, a name and if he belongs to the project
+            json.beginObject()
+                    .name("id").value(node)
+                    .name("name").value(graph.getName(node))
+                    .name("own").value(graph.isOwn(node))
+                    .endObject();
+        }
+
+        json.endArray().name("links").beginArray();
+
+        for (int callerId = 0; callerId < graph.size(); callerId++) {
+            for (int link = graph.linksFrom(callerId); link < graph.linksTo(callerId); link++) {
+                json.beginObject()
+                        .name("source").value(callerId)
+                        .name("target").value(graph.getTarget(link))
+                        .name("str").value(graph.getStrength(link))
+                        .endObject();
+            }
+        }
+
+        json.endArray().endObject().flush();
+    }
+
+    /**
+     * Writes the number of invocations between each pair of classes as csv, one row at a time
+     *
+     * @param fileName file to write
+     * @param matrix   the matrix
+     * @throws IOException if the file cannot be written
+     */
+    public static void csv(String fileName, Matrix matrix) throws IOException {
+        String[] names = matrix.getNames();
+
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(fileName), UTF_8)) {
+            for (String name : names) {
+                out.write(',');
+                out.write(csvField(name));
+            }
+            out.newLine();
+
+            IOException[] failure = new IOException[1];
+            matrix.forEachRow((row, i) -> {
+                if (failure[0] != null) return;
+
+                try {
+                    out.write(csvField(names[i]));
+                    for (int value : row) {
+                        out.write(',');
+                        out.write(Integer.toString(value));
+                    }
+                    out.newLine();
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    private static String csvField(String field) {
+        if (field.indexOf(',') == -1 && field.indexOf('"') == -1 && field.indexOf('\n') == -1) {
+            return field;
+        }
+
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writes the condensation of a graph, a node for each strongly connected component
+     *
+     * @param fileName   file to write
+     * @param components the components of the graph
+     * @throws IOException if the file cannot be written
+     */
+    public static void condensation(String fileName, Components components) throws IOException {
+        try (JsonWriter json = new JsonWriter(Files.newBufferedWriter(Paths.get(fileName), UTF_8))) {
+            json.beginObject().name("nodes").beginArray();
+
+            for (int c = 0; c < components.size(); c++) {
+                json.beginObject()
+                        .name("id").value(c)
+                        .name("name").value(String.join(", ", components.getNames(c)))
+                        .name("size").value(components.getSize(c))
+                        .endObject();
+            }
+
+            json.endArray().name("links").beginArray();
+
+            int[] targets = components.getTargets();
+            for (int c = 0; c < components.size(); c++) {
+                for (int link = components.linksFrom(c); link < components.linksTo(c); link++) {
+                    json.beginObject()
+                            .name("source").value(c)
+                            .name("target").value(targets[link])
+                            .name("str").value(1)
+                            .endObject();
+                }
+            }
+
+            json.endArray().endObject();
+        }
+    }
+
+    /**
+     * Writes all the clusters of the tree as nodes, and the links going down from each of the given roots
+     *
+     * @param fileName file to write
+     * @param cluster  the whole cluster tree
+     * @param roots    the clusters whose links are written, <tt>cluster</tt> itself for the whole dendrogram
+     * @throws IOException if the file cannot be written
+     */
+    public static void dendrogram(String fileName, Cluster<String> cluster, List<Cluster<String>> roots)
+            throws IOException {
+        try (JsonWriter json = new JsonWriter(Files.newBufferedWriter(Paths.get(fileName), UTF_8))) {
+            json.beginObject().name("nodes").beginArray();
+
+            // breadth first, like the previous outputs
+            ArrayDeque<Cluster<String>> queue = new ArrayDeque<>();
+            queue.add(cluster);
+            while (!queue.isEmpty()) {
+                Cluster<String> item = queue.remove();
+
+                String name;
+                if (item.isLeaf()) {
+                    name = item.getObject();
+                } else {
+                    name = String.valueOf(item.getSimilarity());
+
+                    queue.add(item.getFirst());
+                    queue.add(item.getLast());
+                }
+
+                json.beginObject()
+                        .name("id").value(item.getName())
+                        .name("name").value(name)
+                        .name("own").value(true)
+                        .endObject();
+            }
+
+            json.endArray().name("links").beginArray();
+
+            for (Cluster<String> root : roots) {
+                queue.add(root);
+                while (!queue.isEmpty()) {
+                    Cluster<String> item = queue.remove();
+                    if (item.isLeaf()) continue;
+
+                    queue.add(item.getFirst());
+                    queue.add(item.getLast());
+
+                    link(json, item, item.getFirst());
+                    link(json, item, item.getLast());
+                }
+            }
+
+            json.endArray().endObject();
+        }
+    }
+
+    private static void link(JsonWriter json, Cluster<String> parent, Cluster<String> child) throws IOException {
+        json.beginObject()
+                .name("source").value(parent.getName())
+                .name("target").value(child.getName())
+                .name("str").value(1)
+                .endObject();
     }
 }
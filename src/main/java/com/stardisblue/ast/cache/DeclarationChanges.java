@@ -0,0 +1,245 @@
+package com.stardisblue.ast.cache;
+
+import com.stardisblue.ast.info.FieldDeclarationInfo;
+import com.stardisblue.ast.info.MethodDeclarationInfo;
+import com.stardisblue.ast.info.MethodInvocationInfo;
+import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.info.UnresolvedInvocationInfo;
+
+import java.util.*;
+
+/**
+ * Differences between the declarations of the project before and after some files changed.
+ * <p>
+ * The invocations of a file are binded against the declarations of the other files, its facts are out of date once
+ * one of the methods it could invoke is added, removed or changes its parameters or its return type, or once one of the
+ * fields it could read is added, removed or changes its type. A file is considered using the changes if it invokes a
+ * method of a changed type or a method having the name of a changed method (an overload or an override may now be
+ * chosen), or if it invokes a method on the type a changed method returned or a changed field had (<tt>b.get().run()</tt>,
+ * <tt>b.f.run()</tt>). A change of the extended or implemented types can change the target of any invocation, every
+ * file is then using the changes.
+ * The facts of the files using the changes are extracted again.
+ */
+public class DeclarationChanges {
+
+    private final HashMap<String, Declaration> before = new HashMap<>();
+    private final HashMap<String, Declaration> after = new HashMap<>();
+
+    private HashSet<String> changedTypes;
+    private HashSet<String> changedNames;
+    /**
+     * simple names of the types returned by the changed methods and of the types of the changed fields, before and
+     * after the change
+     */
+    private HashSet<String> changedMemberTypes;
+    private boolean hierarchyChanged;
+
+    /**
+     * @param classes the classes declared by a file before it changed
+     */
+    public void before(List<TypeDeclarationInfo> classes) {
+        declare(before, classes);
+    }
+
+    /**
+     * @param classes the classes declared by a file after it changed
+     */
+    public void after(List<TypeDeclarationInfo> classes) {
+        declare(after, classes);
+    }
+
+    /**
+     * @return if no declaration changed, the invocations of the other files are still binded correctly
+     */
+    public boolean isEmpty() {
+        compare();
+        return changedTypes.isEmpty();
+    }
+
+    /**
+     * @param classes the classes declared by a file that did not change
+     * @return if the invocations of the file may be binded differently now
+     */
+    public boolean isUsedBy(List<TypeDeclarationInfo> classes) {
+        if (isEmpty()) return false;
+        if (hierarchyChanged) return true;
+
+        for (TypeDeclarationInfo type : classes) {
+            for (MethodDeclarationInfo method : type.getMethods()) {
+                if (uses(method.getMethodCalls()) || uses(method.getReferences())) {
+                    return true;
+                }
+                for (UnresolvedInvocationInfo invocation : method.getUnresolvedCalls()) {
+                    if (changedNames.contains(invocation.getName()) || readsChangedName(invocation.getReceiver())) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean uses(List<MethodInvocationInfo> invocations) {
+        for (MethodInvocationInfo invocation : invocations) {
+            if (changedNames.contains(invocation.getName()) ||
+                    changedTypes.contains(fullName(invocation.getPackageName(), invocation.getClassType())) ||
+                    changedMemberTypes.contains(invocation.getClassType())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param receiver receiver of an unresolved invocation, as written in the sources (eg: <tt>b.f</tt>)
+     * @return if one of the names of the receiver is a changed method or field
+     */
+    private boolean readsChangedName(String receiver) {
+        if (receiver == null) return false;
+
+        for (String name : receiver.split("[^\\w$]+")) {
+            if (changedNames.contains(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void compare() {
+        if (changedTypes != null) return;
+
+        changedTypes = new HashSet<>();
+        changedNames = new HashSet<>();
+        changedMemberTypes = new HashSet<>();
+
+        HashSet<String> types = new HashSet<>(before.keySet());
+        types.addAll(after.keySet());
+        for (String type : types) {
+            Declaration old = before.getOrDefault(type, Declaration.NONE);
+            Declaration now = after.getOrDefault(type, Declaration.NONE);
+            if (old.equals(now)) continue;
+
+            changedTypes.add(type);
+            // an added or removed type is found through its name, an existing one through its supertypes
+            hierarchyChanged |= old != Declaration.NONE && now != Declaration.NONE &&
+                    !old.superTypes.equals(now.superTypes);
+            difference(old.methods, now.methods);
+            difference(now.methods, old.methods);
+            for (Map.Entry<String, String> method : old.methods.entrySet()) {
+                String returnType = old.returnTypes.get(method.getKey());
+                String newReturnType = now.returnTypes.get(method.getKey());
+                if (newReturnType != null && !returnType.equals(newReturnType)) {
+                    changedNames.add(method.getValue());
+                    changedMemberTypes.add(simpleName(returnType));
+                    changedMemberTypes.add(simpleName(newReturnType));
+                }
+            }
+            fieldDifference(old.fields, now.fields);
+            fieldDifference(now.fields, old.fields);
+        }
+    }
+
+    /**
+     * Adds the names of the methods of <tt>methods</tt> missing from <tt>others</tt> to the changed names
+     */
+    private void difference(Map<String, String> methods, Map<String, String> others) {
+        for (Map.Entry<String, String> method : methods.entrySet()) {
+            if (!others.containsKey(method.getKey())) {
+                changedNames.add(method.getValue());
+            }
+        }
+    }
+
+    /**
+     * Adds the fields of <tt>fields</tt> missing from <tt>others</tt> or having another type there to the changed
+     * names, and their type to the changed member types
+     */
+    private void fieldDifference(Map<String, String> fields, Map<String, String> others) {
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (!field.getValue().equals(others.get(field.getKey()))) {
+                changedNames.add(field.getKey());
+                changedMemberTypes.add(simpleName(field.getValue()));
+            }
+        }
+    }
+
+    private void declare(HashMap<String, Declaration> declarations, List<TypeDeclarationInfo> classes) {
+        changedTypes = null; // compared again
+
+        for (TypeDeclarationInfo type : classes) {
+            Declaration declaration = new Declaration(type.getSuperTypes());
+            for (MethodDeclarationInfo method : type.getMethods()) {
+                declaration.methods.put(method.getCleanMethod(), method.getName());
+                declaration.returnTypes.put(method.getCleanMethod(), method.getReturnType());
+            }
+            for (FieldDeclarationInfo field : type.getFields()) {
+                for (String fragment : field.getFragments()) {
+                    declaration.fields.put(fragment, field.getType());
+                }
+            }
+
+            declarations.put(type.getFullName(), declaration);
+        }
+    }
+
+    private static String fullName(String packageName, String type) {
+        return packageName.isEmpty() ? type : packageName + "." + type;
+    }
+
+    /**
+     * @param type a type as written in the sources (eg: <tt>java.util.List&lt;String&gt;[]</tt>)
+     * @return its name without package, type arguments and dimensions (eg: <tt>List</tt>)
+     */
+    private static String simpleName(String type) {
+        int end = type.indexOf('<');
+        String erased = end == -1 ? type : type.substring(0, end);
+        if (erased.indexOf('[') != -1) {
+            erased = erased.substring(0, erased.indexOf('['));
+        }
+
+        return erased.substring(erased.lastIndexOf('.') + 1).trim();
+    }
+
+    /**
+     * Used for saving what the other files can see of a type
+     */
+    private static class Declaration {
+        static final Declaration NONE = new Declaration(Collections.emptyList());
+
+        final List<String> superTypes;
+        /**
+         * name of each method, by signature
+         */
+        final HashMap<String, String> methods = new HashMap<>();
+        /**
+         * return type of each method, by signature
+         */
+        final HashMap<String, String> returnTypes = new HashMap<>();
+        /**
+         * type of each field, by name
+         */
+        final HashMap<String, String> fields = new HashMap<>();
+
+        Declaration(List<String> superTypes) {
+            this.superTypes = superTypes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Declaration)) return false;
+
+            Declaration that = (Declaration) o;
+            return superTypes.equals(that.superTypes) && returnTypes.equals(that.returnTypes) &&
+                    fields.equals(that.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(superTypes, returnTypes, fields);
+        }
+    }
+}
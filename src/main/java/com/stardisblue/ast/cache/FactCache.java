@@ -0,0 +1,268 @@
+package com.stardisblue.ast.cache;
+
+import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.logging.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent cache of the facts extracted from each file.
+ * <p>
+ * An entry is keyed by the path of the file and the hash of its content,
+ * the whole cache is dropped when the classpath or the way facts are extracted changes.
+ * <p>
+ * When bindings are resolved, the facts of a file also depend on the declarations of the files it invokes, the key
+ * does not cover them. The facts a changed file had before are kept so that the files using its declarations can be
+ * found and parsed again, see {@link DeclarationChanges}.
+ */
+public class FactCache {
+    private static final int MAGIC = 0x53414643; // SAFC
+    private static final int VERSION = 6;
+
+    private final File location;
+    private final String classpathFingerprint;
+
+    /**
+     * entries read from disk, the facts are only decoded on hit
+     */
+    private final HashMap<String, Entry> stored = new HashMap<>();
+    /**
+     * entries of the current run, the others are forgotten when saving
+     */
+    private final ConcurrentHashMap<String, Entry> current = new ConcurrentHashMap<>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param location   file holding the cache
+     * @param classpaths classpath used to resolve bindings, the cache is invalidated if it changes
+     * @param bindings   if the facts are extracted using bindings, the cache is invalidated if it changes
+     */
+    public FactCache(File location, List<String> classpaths, boolean bindings) {
+        this.location = location;
+        this.classpathFingerprint = (bindings ? "bindings;" : "fast;") + fingerprint(classpaths);
+    }
+
+    /**
+     * Reads the cache from disk, starts empty if there is none or if it cannot be used
+     */
+    public void load() {
+        if (!location.isFile()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(location)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Logger.println("Cache", location + " has an unknown format, ignored", Logger.WARNING);
+                return;
+            }
+
+            if (!classpathFingerprint.equals(in.readUTF())) {
+                Logger.println("Cache", "classpath has changed, " + location + " is invalidated", Logger.INFO);
+                return;
+            }
+
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String path = in.readUTF();
+                byte[] hash = new byte[in.readInt()];
+                in.readFully(hash);
+                byte[] facts = new byte[in.readInt()];
+                in.readFully(facts);
+
+                stored.put(path, new Entry(hash, facts, null));
+            }
+        } catch (IOException e) {
+            stored.clear();
+            Logger.println("Cache", location + " cannot be read, ignored (" + e.getMessage() + ")", Logger.WARNING);
+        }
+    }
+
+    /**
+     * Returns the facts of the file if its content did not change since they were stored
+     *
+     * @param file    the java file
+     * @param symbols table the names of the facts are interned in
+     * @return the classes declared in the file, null if the file needs to be parsed
+     * @throws IOException if the file cannot be read
+     */
+    public List<TypeDeclarationInfo> get(File file, SymbolTable symbols) throws IOException {
+        String path = file.getAbsolutePath();
+        byte[] hash = hash(Files.readAllBytes(file.toPath()));
+
+        Entry entry = stored.get(path);
+        if (entry != null && Arrays.equals(entry.hash, hash)) {
+            current.put(path, entry);
+            hits.incrementAndGet();
+
+            return FactCodec.read(new DataInputStream(new ByteArrayInputStream(entry.facts)), symbols);
+        }
+
+        // remembering the hash for put, and what the file declared for previous
+        Entry known = current.get(path);
+        byte[] previous = known != null ? known.facts : entry != null ? entry.facts : null;
+        current.put(path, new Entry(hash, null, previous));
+        misses.incrementAndGet();
+
+        return null;
+    }
+
+    /**
+     * Stores the facts of a file previously missed by {@link #get(File, SymbolTable)}
+     *
+     * @param file    the java file
+     * @param classes the classes declared in the file
+     */
+    public void put(File file, List<TypeDeclarationInfo> classes) {
+        String path = file.getAbsolutePath();
+        Entry missed = current.get(path);
+        if (missed == null) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            FactCodec.write(new DataOutputStream(bytes), classes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // writing to memory
+        }
+
+        current.put(path, new Entry(missed.hash, bytes.toByteArray(), null));
+    }
+
+    /**
+     * @param file    a java file missed by {@link #get(File, SymbolTable)}
+     * @param symbols table the names of the facts are interned in
+     * @return the classes it declared the last time it was parsed, null if it is new
+     */
+    public List<TypeDeclarationInfo> previous(File file, SymbolTable symbols) {
+        Entry missed = current.get(file.getAbsolutePath());
+        if (missed == null || missed.previous == null) {
+            return null;
+        }
+
+        try {
+            return FactCodec.read(new DataInputStream(new ByteArrayInputStream(missed.previous)), symbols);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // reading from memory
+        }
+    }
+
+    /**
+     * Removes the stored entries of the files that have not been requested during this run, they were deleted
+     *
+     * @param symbols table the names of the facts are interned in
+     * @return the classes the forgotten files declared
+     */
+    public List<List<TypeDeclarationInfo>> forgotten(SymbolTable symbols) {
+        List<List<TypeDeclarationInfo>> forgotten = new ArrayList<>();
+
+        Iterator<Map.Entry<String, Entry>> entries = stored.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Entry> pathEntry = entries.next();
+            if (current.containsKey(pathEntry.getKey())) continue;
+
+            byte[] facts = pathEntry.getValue().facts;
+            try {
+                forgotten.add(FactCodec.read(new DataInputStream(new ByteArrayInputStream(facts)), symbols));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // reading from memory
+            }
+            entries.remove();
+        }
+
+        return forgotten;
+    }
+
+    /**
+     * Writes the entries of the current run to disk
+     *
+     * @throws IOException if the cache cannot be written
+     */
+    public void save() throws IOException {
+        File parent = location.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(location)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(classpathFingerprint);
+
+            int size = 0;
+            for (Entry entry : current.values()) {
+                if (entry.facts != null) size++;
+            }
+
+            out.writeInt(size);
+            for (Map.Entry<String, Entry> pathEntry : current.entrySet()) {
+                Entry entry = pathEntry.getValue();
+                if (entry.facts == null) continue; // the file could not be parsed
+
+                out.writeUTF(pathEntry.getKey());
+                out.writeInt(entry.hash.length);
+                out.write(entry.hash);
+                out.writeInt(entry.facts.length);
+                out.write(entry.facts);
+            }
+        }
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public int misses() {
+        return misses.get();
+    }
+
+    /**
+     * The classpath is identified by its entries, their size and their last modification
+     *
+     * @param classpaths classpath entries
+     * @return a string changing each time the classpath changes
+     */
+    private static String fingerprint(List<String> classpaths) {
+        StringBuilder st = new StringBuilder();
+        for (String classpath : classpaths) {
+            File file = new File(classpath);
+            st.append(file.getAbsolutePath()).append(':')
+                    .append(file.length()).append(':')
+                    .append(file.lastModified()).append(';');
+        }
+
+        return st.toString();
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every java platform has SHA-256
+        }
+    }
+
+    private static class Entry {
+        final byte[] hash;
+        final byte[] facts;
+        /**
+         * facts before the file changed, only for a missed file
+         */
+        final byte[] previous;
+
+        Entry(byte[] hash, byte[] facts, byte[] previous) {
+            this.hash = hash;
+            this.facts = facts;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.stardisblue.ast.cache;
+
+import com.stardisblue.ast.info.*;
+import com.stardisblue.ast.structure.SymbolTable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the facts extracted from a file : classes, fields, methods, parameters and invocations
+ * (binded or not)
+ */
+public class FactCodec {
+
+    /**
+     * Writes the classes of a file and everything they contain
+     *
+     * @param out     where to write
+     * @param classes classes declared in the file
+     * @throws IOException if the output cannot be written
+     */
+    public static void write(DataOutput out, List<TypeDeclarationInfo> classes) throws IOException {
+        write(out, classes, true);
+    }
+
+    /**
+     * Writes the classes of a file without the invocations of their methods, {@link #read(DataInput, SymbolTable)}
+     * reads them back as methods invoking nothing
+     *
+     * @param out     where to write
+     * @param classes classes declared in the file
+     * @throws IOException if the output cannot be written
+     */
+    public static void writeDeclarations(DataOutput out, List<TypeDeclarationInfo> classes) throws IOException {
+        write(out, classes, false);
+    }
+
+    private static void write(DataOutput out, List<TypeDeclarationInfo> classes, boolean invocations)
+            throws IOException {
+        out.writeInt(classes.size());
+        for (TypeDeclarationInfo type : classes) {
+            out.writeUTF(type.getName());
+            out.writeUTF(type.getPackageName());
+            out.writeInt(type.numberOfLines());
+            writeStrings(out, type.getImports());
+            writeStrings(out, type.getSuperTypes());
+
+            out.writeInt(type.numberOfFields());
+            for (FieldDeclarationInfo field : type.getFields()) {
+                out.writeUTF(field.getType());
+                writeStrings(out, field.getFragments());
+            }
+
+            out.writeInt(type.numberOfMethods());
+            for (MethodDeclarationInfo method : type.getMethods()) {
+                out.writeUTF(method.getName());
+                out.writeUTF(method.getReturnType());
+                out.writeInt(method.numberOfLines());
+
+                out.writeInt(method.numberOfParameters());
+                for (ParameterInfo parameter : method.getParameters()) {
+                    out.writeUTF(parameter.getName());
+                    out.writeUTF(parameter.getType());
+                    out.writeUTF(parameter.getClassType());
+                }
+
+                if (!invocations) {
+                    // no method invocation, reference or unresolved invocation
+                    out.writeInt(0);
+                    out.writeInt(0);
+                    out.writeInt(0);
+                    continue;
+                }
+
+                out.writeInt(method.getMethodCalls().size());
+                for (int i = 0; i < method.getMethodCalls().size(); i++) {
+                    MethodInvocationInfo invocation = method.getMethodCalls().get(i);
+                    out.writeInt(method.getCallCounts()[i]);
+                    out.writeUTF(invocation.getName());
+                    out.writeUTF(invocation.getType());
+                    out.writeUTF(invocation.getPackageName());
+                    out.writeUTF(invocation.getClassType());
+                    writeStrings(out, invocation.getParameters());
+                    out.writeBoolean(invocation.isExternal());
+                }
+
+                out.writeInt(method.getReferences().size());
+                for (int i = 0; i < method.getReferences().size(); i++) {
+                    MethodInvocationInfo reference = method.getReferences().get(i);
+                    out.writeInt(method.getReferenceCounts()[i]);
+                    out.writeUTF(reference.getName());
+                    out.writeUTF(reference.getType());
+                    out.writeUTF(reference.getPackageName());
+                    out.writeUTF(reference.getClassType());
+                    writeStrings(out, reference.getParameters());
+                    out.writeBoolean(reference.isExternal());
+                }
+
+                out.writeInt(method.getUnresolvedCalls().size());
+                for (UnresolvedInvocationInfo invocation : method.getUnresolvedCalls()) {
+                    out.writeUTF(invocation.getName());
+                    out.writeBoolean(invocation.isOnThis());
+                    if (!invocation.isOnThis()) {
+                        out.writeUTF(invocation.getReceiver());
+                    }
+                    out.writeBoolean(invocation.isReceiverType());
+                    out.writeInt(invocation.numberOfArguments());
+                    out.writeBoolean(invocation.isReference());
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the classes written by {@link #write(DataOutput, List)}
+     *
+     * @param in      where to read
+     * @param symbols table the names are interned in
+     * @return the classes declared in the file
+     * @throws IOException if the input cannot be read
+     */
+    public static List<TypeDeclarationInfo> read(DataInput in, SymbolTable symbols) throws IOException {
+        int classesSize = in.readInt();
+        List<TypeDeclarationInfo> classes = new ArrayList<>(classesSize);
+
+        for (int i = 0; i < classesSize; i++) {
+            String name = in.readUTF();
+            String packageName = in.readUTF();
+            int numberOfLines = in.readInt();
+            List<String> imports = readStrings(in);
+            List<String> superTypes = readStrings(in);
+
+            int fieldsSize = in.readInt();
+            // the sizes are needed before creating the class, the children are created once it exists
+            List<String> fieldTypes = new ArrayList<>(fieldsSize);
+            List<List<String>> fieldFragments = new ArrayList<>(fieldsSize);
+            for (int f = 0; f < fieldsSize; f++) {
+                fieldTypes.add(in.readUTF());
+                fieldFragments.add(readStrings(in));
+            }
+
+            int methodsSize = in.readInt();
+            TypeDeclarationInfo type = new TypeDeclarationInfo(symbols, name, packageName, numberOfLines, imports,
+                                                               superTypes, fieldsSize, methodsSize);
+
+            List<FieldDeclarationInfo> fields = new ArrayList<>(fieldsSize);
+            for (int f = 0; f < fieldsSize; f++) {
+                fields.add(new FieldDeclarationInfo(type, fieldTypes.get(f), fieldFragments.get(f)));
+            }
+
+            List<MethodDeclarationInfo> methods = new ArrayList<>(methodsSize);
+            for (int m = 0; m < methodsSize; m++) {
+                methods.add(readMethod(in, type));
+            }
+
+            type.setup(fields, methods);
+            classes.add(type);
+        }
+
+        return classes;
+    }
+
+    private static MethodDeclarationInfo readMethod(DataInput in, TypeDeclarationInfo parent) throws IOException {
+        String name = in.readUTF();
+        String returnType = in.readUTF();
+        int numberOfLines = in.readInt();
+
+        int parametersSize = in.readInt();
+        String[][] parameterFacts = new String[parametersSize][];
+        for (int p = 0; p < parametersSize; p++) {
+            parameterFacts[p] = new String[]{in.readUTF(), in.readUTF(), in.readUTF()};
+        }
+
+        int invocationsSize = in.readInt();
+        MethodDeclarationInfo method = new MethodDeclarationInfo(parent, name, returnType, numberOfLines,
+                                                                 parametersSize, invocationsSize);
+
+        List<ParameterInfo> parameters = new ArrayList<>(parametersSize);
+        for (String[] facts : parameterFacts) {
+            parameters.add(new ParameterInfo(method, facts[0], facts[1], facts[2]));
+        }
+
+        List<MethodInvocationInfo> invocations = new ArrayList<>(invocationsSize);
+        int[] callCounts = readInvocations(in, parent, invocations, invocationsSize);
+
+        int referencesSize = in.readInt();
+        List<MethodInvocationInfo> references = new ArrayList<>(referencesSize);
+        int[] referenceCounts = readInvocations(in, parent, references, referencesSize);
+
+        int unresolvedSize = in.readInt();
+        List<UnresolvedInvocationInfo> unresolved = new ArrayList<>(unresolvedSize);
+        for (int i = 0; i < unresolvedSize; i++) {
+            String invocationName = in.readUTF();
+            String receiver = in.readBoolean() ? null : in.readUTF();
+            unresolved.add(new UnresolvedInvocationInfo(invocationName, receiver, in.readBoolean(), in.readInt(),
+                                                        in.readBoolean()));
+        }
+
+        method.setup(parameters, invocations, callCounts);
+        method.setupReferences(references, referenceCounts);
+        method.setupUnresolved(unresolved);
+
+        return method;
+    }
+
+    /**
+     * @param invocations where the invoked methods are added
+     * @param size        number of invoked methods
+     * @return the number of call sites of each invoked method
+     */
+    private static int[] readInvocations(DataInput in, TypeDeclarationInfo parent,
+                                         List<MethodInvocationInfo> invocations, int size) throws IOException {
+        int[] counts = new int[size];
+        for (int i = 0; i < size; i++) {
+            counts[i] = in.readInt();
+            invocations.add(new MethodInvocationInfo(parent.getSymbols(), in.readUTF(), in.readUTF(), in.readUTF(),
+                                                     in.readUTF(), readStrings(in), in.readBoolean()));
+        }
+
+        return counts;
+    }
+
+    private static void writeStrings(DataOutput out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(in.readUTF());
+        }
+
+        return strings;
+    }
+}
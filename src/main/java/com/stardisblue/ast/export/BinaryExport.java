@@ -0,0 +1,467 @@
+package com.stardisblue.ast.export;
+
+import com.stardisblue.ast.Compute;
+import com.stardisblue.ast.Write;
+import com.stardisblue.ast.structure.Cluster;
+import com.stardisblue.ast.structure.Graph;
+import com.stardisblue.ast.structure.GraphView;
+import com.stardisblue.ast.structure.Matrix;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Memory-mapped binary export of the method graph, the class graph, the coupling matrix and the dendrogram.
+ * <p>
+ * Every section is an array of big-endian ints at an offset computed from the header, nothing is deserialized :
+ * the links of a node are read straight from the mapped file.
+ * <p>
+ * Layout :
+ * <pre>
+ * magic, version
+ * string count, method nodes, method links, class nodes, class links, matrix size, matrix cells, matrix total,
+ * cluster count
+ * string offsets   [string count + 1]
+ * method graph     nodes [nodes * 3]   name, own (0 or 1), number of call sites targeting it
+ *                  offsets [nodes + 1] the targets of node n are targets[offsets[n]] to targets[offsets[n + 1] - 1]
+ *                  targets [links]
+ *                  weights [links]     strength of the link, as float bits
+ * class graph      same as the method graph
+ * matrix           names [size]
+ *                  offsets [size + 1]  the cells of row i are columns[offsets[i]] to columns[offsets[i + 1] - 1]
+ *                  columns [cells]     sorted, only the upper triangle (column &gt;= row) as the coupling is symmetric
+ *                  values [cells]      invocations between the two classes, in both directions
+ * clusters         [cluster count * 5] id, name (-1 for a merge), first, last (indexes of the merged clusters in
+ *                                      this section, -1 for a class), similarity ; children before their parent,
+ *                                      the root is the last one
+ * strings          utf-8 bytes
+ * </pre>
+ */
+public class BinaryExport {
+    private static final int MAGIC = 0x53414758; // SAGX
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 11;
+    private static final int NODE_SIZE = 3;
+    private static final int CLUSTER_SIZE = 5;
+
+    private final ByteBuffer buffer;
+    private final GraphSection methodGraph;
+    private final GraphSection classGraph;
+    private final int matrixSize;
+    private final int matrixCellCount;
+    private final int matrixTotal;
+    private final int clusterCount;
+
+    private final int stringOffsets;
+    private final int matrixNames;
+    private final int matrixOffsets;
+    private final int matrixColumns;
+    private final int matrixValues;
+    private final int clusters;
+    private final int strings;
+
+    private BinaryExport(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Unknown export format");
+        }
+
+        int stringCount = buffer.getInt(8);
+        int methodNodes = buffer.getInt(12);
+        int methodLinks = buffer.getInt(16);
+        int classNodes = buffer.getInt(20);
+        int classLinks = buffer.getInt(24);
+        this.matrixSize = buffer.getInt(28);
+        this.matrixCellCount = buffer.getInt(32);
+        this.matrixTotal = buffer.getInt(36);
+        this.clusterCount = buffer.getInt(40);
+
+        this.stringOffsets = 4 * HEADER_SIZE;
+        this.methodGraph = new GraphSection(stringOffsets + 4 * (stringCount + 1), methodNodes, methodLinks);
+        this.classGraph = new GraphSection(methodGraph.end, classNodes, classLinks);
+        this.matrixNames = classGraph.end;
+        this.matrixOffsets = matrixNames + 4 * matrixSize;
+        this.matrixColumns = matrixOffsets + 4 * (matrixSize + 1);
+        this.matrixValues = matrixColumns + 4 * matrixCellCount;
+        this.clusters = matrixValues + 4 * matrixCellCount;
+        this.strings = clusters + 4 * CLUSTER_SIZE * clusterCount;
+    }
+
+    /**
+     * @param location file holding the export
+     * @return the mapped export
+     * @throws IOException if the file cannot be read or is not an export
+     */
+    public static BinaryExport open(File location) throws IOException {
+        try (FileChannel channel = FileChannel.open(location.toPath(), StandardOpenOption.READ)) {
+            return new BinaryExport(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public GraphSection getMethodGraph() {
+        return methodGraph;
+    }
+
+    public GraphSection getClassGraph() {
+        return classGraph;
+    }
+
+    /**
+     * @return the number of rows, and columns, of the coupling matrix
+     */
+    public int getMatrixSize() {
+        return matrixSize;
+    }
+
+    public String getMatrixName(int index) {
+        return string(buffer.getInt(matrixNames + 4 * index));
+    }
+
+    /**
+     * Binary search in the row of the smallest index
+     *
+     * @param i index of a class
+     * @param j index of a class
+     * @return the number of invocations between them, in both directions
+     */
+    public int getMatrixValue(int i, int j) {
+        int row = Math.min(i, j);
+        int column = Math.max(i, j);
+
+        int low = buffer.getInt(matrixOffsets + 4 * row);
+        int high = buffer.getInt(matrixOffsets + 4 * (row + 1)) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = buffer.getInt(matrixColumns + 4 * middle);
+
+            if (found < column) {
+                low = middle + 1;
+            } else if (found > column) {
+                high = middle - 1;
+            } else {
+                return buffer.getInt(matrixValues + 4 * middle);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return the number of pairs of classes that have invocations
+     */
+    public int getMatrixCellCount() {
+        return matrixCellCount;
+    }
+
+    public int getMatrixTotal() {
+        return matrixTotal;
+    }
+
+    /**
+     * @return the number of classes and merges of the dendrogram
+     */
+    public int numberOfClusters() {
+        return clusterCount;
+    }
+
+    /**
+     * @param cluster index in the section, the children of a merge always have a smaller one
+     * @return the name of the cluster in the dendrogram
+     */
+    public int getClusterId(int cluster) {
+        return clusterEntry(cluster, 0);
+    }
+
+    /**
+     * @param cluster index in the section
+     * @return the name of the class, null for a merge
+     */
+    public String getClusterClass(int cluster) {
+        int name = clusterEntry(cluster, 1);
+
+        return name == -1 ? null : string(name);
+    }
+
+    public int getClusterFirst(int cluster) {
+        return clusterEntry(cluster, 2);
+    }
+
+    public int getClusterLast(int cluster) {
+        return clusterEntry(cluster, 3);
+    }
+
+    public int getClusterSimilarity(int cluster) {
+        return clusterEntry(cluster, 4);
+    }
+
+    /**
+     * @return the dendrogram rebuilt from the merge list, null if there is no class
+     */
+    public Cluster<String> clusterTree() {
+        List<Cluster<String>> built = new ArrayList<>(clusterCount);
+        for (int c = 0; c < clusterCount; c++) {
+            Cluster<String> cluster;
+            if (getClusterFirst(c) == -1) {
+                cluster = new Cluster<>(getClusterId(c), getClusterClass(c));
+            } else {
+                cluster = new Cluster<>(getClusterId(c), built.get(getClusterFirst(c)), built.get(getClusterLast(c)),
+                                        getClusterSimilarity(c));
+            }
+            cluster.initSimilarity(getClusterSimilarity(c));
+            built.add(cluster);
+        }
+
+        return built.isEmpty() ? null : built.get(built.size() - 1);
+    }
+
+    /**
+     * Converts the export to the json files written by the analyzer
+     *
+     * @param folder where the json files are written
+     * @throws IOException if a file cannot be written
+     */
+    public void writeJson(File folder) throws IOException {
+        Write.graph(new File(folder, "method-call-output.json").getPath(), methodGraph);
+        Write.graph(new File(folder, "class-call-output.json").getPath(), classGraph);
+
+        Cluster<String> cluster = clusterTree();
+        if (cluster != null) {
+            Write.dendrogram(new File(folder, "dendogram-output.json").getPath(), cluster,
+                             Collections.singletonList(cluster));
+            Write.dendrogram(new File(folder, "dendogram-partition.json").getPath(), cluster,
+                             Compute.clusterSelection(cluster));
+        }
+    }
+
+    private int clusterEntry(int cluster, int field) {
+        return buffer.getInt(clusters + 4 * (CLUSTER_SIZE * cluster + field));
+    }
+
+    private String string(int id) {
+        int start = buffer.getInt(stringOffsets + 4 * id);
+        int end = buffer.getInt(stringOffsets + 4 * (id + 1));
+
+        byte[] bytes = new byte[end - start];
+        ByteBuffer duplicate = buffer.duplicate(); // the position of the shared buffer is never moved
+        duplicate.position(strings + start);
+        duplicate.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes the export
+     *
+     * @param location    file to write
+     * @param methodGraph the method call graph
+     * @param classGraph  the class call graph
+     * @param matrix      the class coupling matrix
+     * @param cluster     the dendrogram, can be null
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(File location, Graph methodGraph, Graph classGraph, Matrix matrix,
+                             Cluster<String> cluster) throws IOException {
+        LinkedHashMap<String, Integer> stringIds = new LinkedHashMap<>();
+
+        int[] methodNodes = nodes(stringIds, methodGraph);
+        int[] classNodes = nodes(stringIds, classGraph);
+
+        String[] names = matrix.getNames();
+        int[] matrixNames = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            matrixNames[i] = id(stringIds, names[i]);
+        }
+
+        List<Cluster<String>> order = postOrder(cluster);
+        HashMap<Integer, Integer> indexes = new HashMap<>(order.size());
+        int[] clusterEntries = new int[CLUSTER_SIZE * order.size()];
+        for (int c = 0; c < order.size(); c++) {
+            Cluster<String> item = order.get(c);
+            indexes.put(item.getName(), c);
+
+            clusterEntries[CLUSTER_SIZE * c] = item.getName();
+            clusterEntries[CLUSTER_SIZE * c + 1] = item.isLeaf() ? id(stringIds, item.getObject()) : -1;
+            clusterEntries[CLUSTER_SIZE * c + 2] = item.isLeaf() ? -1 : indexes.get(item.getFirst().getName());
+            clusterEntries[CLUSTER_SIZE * c + 3] = item.isLeaf() ? -1 : indexes.get(item.getLast().getName());
+            clusterEntries[CLUSTER_SIZE * c + 4] = (int) item.getSimilarity();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(location.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stringIds.size());
+            out.writeInt(methodGraph.size());
+            out.writeInt(methodGraph.numberOfLinks());
+            out.writeInt(classGraph.size());
+            out.writeInt(classGraph.numberOfLinks());
+            out.writeInt(names.length);
+            out.writeInt(matrix.numberOfCells());
+            out.writeInt(matrix.getTotal());
+            out.writeInt(order.size());
+
+            List<byte[]> encoded = new ArrayList<>(stringIds.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (String string : stringIds.keySet()) {
+                byte[] bytes = string.getBytes(UTF_8);
+                encoded.add(bytes);
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+
+            writeGraph(out, methodGraph, methodNodes);
+            writeGraph(out, classGraph, classNodes);
+
+            writeInts(out, matrixNames);
+            for (int row = 0; row <= names.length; row++) {
+                out.writeInt(row == names.length ? matrix.numberOfCells() : matrix.rowFrom(row));
+            }
+            writeInts(out, matrix.getColumns());
+            writeInts(out, matrix.getValues());
+
+            writeInts(out, clusterEntries);
+
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static int[] nodes(Map<String, Integer> stringIds, Graph graph) {
+        int[] nodes = new int[NODE_SIZE * graph.size()];
+        for (int node = 0; node < graph.size(); node++) {
+            nodes[NODE_SIZE * node] = id(stringIds, graph.getName(node));
+            nodes[NODE_SIZE * node + 1] = graph.isOwn(node) ? 1 : 0;
+            nodes[NODE_SIZE * node + 2] = graph.getSourceCount(node);
+        }
+
+        return nodes;
+    }
+
+    private static void writeGraph(DataOutputStream out, Graph graph, int[] nodes) throws IOException {
+        writeInts(out, nodes);
+
+        for (int node = 0; node <= graph.size(); node++) {
+            out.writeInt(node == graph.size() ? graph.numberOfLinks() : graph.linksFrom(node));
+        }
+
+        writeInts(out, graph.getTargets());
+
+        for (int link = 0; link < graph.numberOfLinks(); link++) {
+            out.writeInt(Float.floatToIntBits(graph.getStrength(link)));
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        for (int i : ints) {
+            out.writeInt(i);
+        }
+    }
+
+    /**
+     * @param cluster root of the dendrogram, can be null
+     * @return the clusters, each one after its children
+     */
+    private static List<Cluster<String>> postOrder(Cluster<String> cluster) {
+        ArrayList<Cluster<String>> order = new ArrayList<>();
+        if (cluster == null) {
+            return order;
+        }
+
+        // parent, last, first, ... reversed
+        ArrayDeque<Cluster<String>> stack = new ArrayDeque<>();
+        stack.push(cluster);
+        while (!stack.isEmpty()) {
+            Cluster<String> item = stack.pop();
+            order.add(item);
+            if (!item.isLeaf()) {
+                stack.push(item.getFirst());
+                stack.push(item.getLast());
+            }
+        }
+        Collections.reverse(order);
+
+        return order;
+    }
+
+    private static int id(Map<String, Integer> stringIds, String string) {
+        return stringIds.computeIfAbsent(string, k -> stringIds.size());
+    }
+
+    /**
+     * Call graph read from the export, ids and layout are the ones of {@link Graph}
+     */
+    public class GraphSection implements GraphView {
+        private final int size;
+        private final int numberOfLinks;
+
+        private final int nodes;
+        private final int offsets;
+        private final int targets;
+        private final int weights;
+        private final int end;
+
+        GraphSection(int start, int size, int numberOfLinks) {
+            this.size = size;
+            this.numberOfLinks = numberOfLinks;
+
+            this.nodes = start;
+            this.offsets = nodes + 4 * NODE_SIZE * size;
+            this.targets = offsets + 4 * (size + 1);
+            this.weights = targets + 4 * numberOfLinks;
+            this.end = weights + 4 * numberOfLinks;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        public int numberOfLinks() {
+            return numberOfLinks;
+        }
+
+        @Override
+        public String getName(int node) {
+            return string(buffer.getInt(nodes + 4 * NODE_SIZE * node));
+        }
+
+        @Override
+        public boolean isOwn(int node) {
+            return buffer.getInt(nodes + 4 * (NODE_SIZE * node + 1)) != 0;
+        }
+
+        public int getSourceCount(int node) {
+            return buffer.getInt(nodes + 4 * (NODE_SIZE * node + 2));
+        }
+
+        @Override
+        public int linksFrom(int node) {
+            return buffer.getInt(offsets + 4 * node);
+        }
+
+        @Override
+        public int linksTo(int node) {
+            return buffer.getInt(offsets + 4 * (node + 1));
+        }
+
+        @Override
+        public int getTarget(int link) {
+            return buffer.getInt(targets + 4 * link);
+        }
+
+        @Override
+        public float getStrength(int link) {
+            return Float.intBitsToFloat(buffer.getInt(weights + 4 * link));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.stardisblue.ast.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the name, the super types and the methods of a class file, everything else is skipped
+ */
+class ClassFileReader {
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_BRIDGE = 0x0040;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private ClassFileReader() {
+    }
+
+    /**
+     * @param bytes content of the class file
+     * @return the public class, null if the class is not public or is nested
+     * @throws IOException if the class file is malformed
+     */
+    static IndexedType read(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor
+        in.readUnsignedShort(); // major
+
+        // constant pool, only utf8 and class entries are kept
+        int poolSize = in.readUnsignedShort();
+        String[] utf8 = new String[poolSize];
+        int[] classNames = new int[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classNames[i] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    ++i; // takes two entries
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        int access = in.readUnsignedShort();
+        String name = utf8[classNames[in.readUnsignedShort()]];
+        int superClass = in.readUnsignedShort();
+
+        if ((access & ACC_PUBLIC) == 0 || name.indexOf('$') != -1) {
+            return null;
+        }
+
+        List<String> superTypes = new ArrayList<>();
+        if (superClass != 0) {
+            superTypes.add(utf8[classNames[superClass]].replace('/', '.'));
+        }
+
+        int interfaces = in.readUnsignedShort();
+        for (int i = 0; i < interfaces; i++) {
+            superTypes.add(utf8[classNames[in.readUnsignedShort()]].replace('/', '.'));
+        }
+
+        // fields
+        int fields = in.readUnsignedShort();
+        for (int i = 0; i < fields; i++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+
+        IndexedType type = new IndexedType(name.replace('/', '.'), superTypes);
+
+        int methods = in.readUnsignedShort();
+        for (int i = 0; i < methods; i++) {
+            int methodAccess = in.readUnsignedShort();
+            String methodName = utf8[in.readUnsignedShort()];
+            String descriptor = utf8[in.readUnsignedShort()];
+            skipAttributes(in);
+
+            if ((methodAccess & (ACC_PRIVATE | ACC_BRIDGE | ACC_SYNTHETIC)) != 0 || methodName.startsWith("<")) {
+                continue; // not invocable from the outside or constructor
+            }
+
+            type.methods.add(new IndexedMethod(methodName, parameters(descriptor)));
+        }
+
+        return type;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributes = in.readUnsignedShort();
+        for (int i = 0; i < attributes; i++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    /**
+     * @param descriptor method descriptor (eg: <tt>(Ljava/util/List;I[Ljava/lang/String;)V</tt>)
+     * @return the simple names of the parameter types (eg: <tt>List, int, String[]</tt>)
+     */
+    static List<String> parameters(String descriptor) {
+        List<String> parameters = new ArrayList<>();
+        int i = 1; // skipping (
+        while (descriptor.charAt(i) != ')') {
+            int dimensions = 0;
+            while (descriptor.charAt(i) == '[') {
+                ++dimensions;
+                ++i;
+            }
+
+            String type;
+            char c = descriptor.charAt(i);
+            if (c == 'L') {
+                int end = descriptor.indexOf(';', i);
+                String qualified = descriptor.substring(i + 1, end);
+                type = qualified.substring(qualified.lastIndexOf('/') + 1).replace('$', '.');
+                i = end + 1;
+            } else {
+                type = primitive(c);
+                ++i;
+            }
+
+            StringBuilder st = new StringBuilder(type);
+            for (int d = 0; d < dimensions; d++) {
+                st.append("[]");
+            }
+            parameters.add(st.toString());
+        }
+
+        return parameters;
+    }
+
+    private static String primitive(char descriptor) {
+        switch (descriptor) {
+            case 'B':
+                return "byte";
+            case 'C':
+                return "char";
+            case 'D':
+                return "double";
+            case 'F':
+                return "float";
+            case 'I':
+                return "int";
+            case 'J':
+                return "long";
+            case 'S':
+                return "short";
+            case 'Z':
+                return "boolean";
+            default:
+                return "void";
+        }
+    }
+
+    /**
+     * Class read from a class file
+     */
+    static class IndexedType {
+        final String qualifiedName;
+        final List<String> superTypes;
+        final List<IndexedMethod> methods = new ArrayList<>();
+
+        IndexedType(String qualifiedName, List<String> superTypes) {
+            this.qualifiedName = qualifiedName;
+            this.superTypes = superTypes;
+        }
+    }
+
+    /**
+     * Method read from a class file
+     */
+    static class IndexedMethod {
+        final String name;
+        final List<String> parameters;
+
+        IndexedMethod(String name, List<String> parameters) {
+            this.name = name;
+            this.parameters = parameters;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.stardisblue.ast.index;
+
+import com.stardisblue.ast.index.ClassFileReader.IndexedMethod;
+import com.stardisblue.ast.index.ClassFileReader.IndexedType;
+import com.stardisblue.logging.Logger;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Memory-mapped index of the public types and methods of the java runtime (<tt>jrt:/</tt>) and of the classpath.
+ * <p>
+ * The index is built once and stored on disk, it is keyed by the checksums of the classpath entries and by the
+ * java runtime version so that it is rebuilt as soon as one of them changes.
+ * <p>
+ * Layout (big-endian ints) :
+ * <pre>
+ * magic, version, key length, key (utf-8)
+ * string count, type count, super type count, method count
+ * string offsets   [string count + 1]
+ * types            [type count * 7]   qualified name, package, simple name, first super, super count,
+ *                                     first method, method count (sorted by qualified name)
+ * super types      [super type count] type indexes
+ * methods          [method count * 3] name, number of parameters, parameters (joined with ", ")
+ * strings          utf-8 bytes
+ * </pre>
+ */
+public class ClasspathIndex {
+    private static final int MAGIC = 0x53414349; // SACI
+    private static final int VERSION = 1;
+
+    private static final int TYPE_SIZE = 7;
+    private static final int METHOD_SIZE = 3;
+
+    private final ByteBuffer buffer;
+    private final String key;
+    private final int typeCount;
+    private final int stringOffsets;
+    private final int types;
+    private final int superTypes;
+    private final int methods;
+    private final int strings;
+
+    private ClasspathIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Unknown index format");
+        }
+
+        int keyLength = buffer.getInt(8);
+        byte[] keyBytes = new byte[keyLength];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(12);
+        duplicate.get(keyBytes);
+        this.key = new String(keyBytes, UTF_8);
+
+        int counts = 12 + keyLength;
+        int stringCount = buffer.getInt(counts);
+        this.typeCount = buffer.getInt(counts + 4);
+        int superTypeCount = buffer.getInt(counts + 8);
+        int methodCount = buffer.getInt(counts + 12);
+
+        this.stringOffsets = counts + 16;
+        this.types = stringOffsets + 4 * (stringCount + 1);
+        this.superTypes = types + 4 * TYPE_SIZE * typeCount;
+        this.methods = superTypes + 4 * superTypeCount;
+        this.strings = methods + 4 * METHOD_SIZE * methodCount;
+    }
+
+    /**
+     * Maps the index, it is (re)built if it does not exist or if the classpath changed
+     *
+     * @param location   file holding the index
+     * @param classpaths classpath entries (jars or directories)
+     * @return the index
+     * @throws IOException if the index cannot be built or read
+     */
+    public static ClasspathIndex open(File location, List<String> classpaths) throws IOException {
+        String key = key(classpaths);
+
+        if (location.isFile()) {
+            try {
+                ClasspathIndex index = map(location);
+                if (index.key.equals(key)) {
+                    return index;
+                }
+            } catch (IOException e) {
+                Logger.println("Index", location + " cannot be read, rebuilding it (" + e.getMessage() + ")",
+                               Logger.WARNING);
+            }
+        }
+
+        Logger.println("Index", "indexing the classpath in " + location, Logger.INFO);
+        write(location, key, scan(classpaths));
+
+        return map(location);
+    }
+
+    /**
+     * @param qualifiedName qualified name of a type (eg: <tt>java.util.List</tt>)
+     * @return if the type is indexed
+     */
+    public boolean contains(String qualifiedName) {
+        return find(qualifiedName) != -1;
+    }
+
+    /**
+     * Looks for a method in the type and then in its super types
+     *
+     * @param qualifiedName      qualified name of the type
+     * @param name               name of the method
+     * @param numberOfParameters number of parameters of the method, negative for any number
+     * @return the method, null if it cannot be found
+     */
+    public Method findMethod(String qualifiedName, String name, int numberOfParameters) {
+        int type = find(qualifiedName);
+        if (type == -1) {
+            return null;
+        }
+
+        // breadth first through the super types, a type can be reached more than once with interfaces
+        BitSet visited = new BitSet(typeCount);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(type);
+        visited.set(type);
+
+        while (!queue.isEmpty()) {
+            int current = queue.remove();
+            int entry = types + 4 * TYPE_SIZE * current;
+
+            int firstMethod = buffer.getInt(entry + 20);
+            int methodCount = buffer.getInt(entry + 24);
+            for (int m = firstMethod; m < firstMethod + methodCount; m++) {
+                int method = methods + 4 * METHOD_SIZE * m;
+                if ((numberOfParameters < 0 || buffer.getInt(method + 4) == numberOfParameters) && string(buffer.getInt(method)).equals(name)) {
+                    String parameters = string(buffer.getInt(method + 8));
+                    return new Method(string(buffer.getInt(entry + 4)), string(buffer.getInt(entry + 8)),
+                                      parameters.isEmpty() ?
+                                              Collections.emptyList() :
+                                              Arrays.asList(parameters.split(", ")));
+                }
+            }
+
+            int firstSuper = buffer.getInt(entry + 12);
+            int superCount = buffer.getInt(entry + 16);
+            for (int s = firstSuper; s < firstSuper + superCount; s++) {
+                int superType = buffer.getInt(superTypes + 4 * s);
+                if (!visited.get(superType)) {
+                    visited.set(superType);
+                    queue.add(superType);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Binary search over the types, sorted by qualified name
+     *
+     * @param qualifiedName qualified name of the type
+     * @return index of the type, -1 if it is not indexed
+     */
+    private int find(String qualifiedName) {
+        int low = 0;
+        int high = typeCount - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = string(buffer.getInt(types + 4 * TYPE_SIZE * middle)).compareTo(qualifiedName);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    private String string(int id) {
+        int start = buffer.getInt(stringOffsets + 4 * id);
+        int end = buffer.getInt(stringOffsets + 4 * (id + 1));
+
+        byte[] bytes = new byte[end - start];
+        ByteBuffer duplicate = buffer.duplicate(); // the position of the shared buffer is never moved
+        duplicate.position(strings + start);
+        duplicate.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    private static ClasspathIndex map(File location) throws IOException {
+        try (FileChannel channel = FileChannel.open(location.toPath(), StandardOpenOption.READ)) {
+            return new ClasspathIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param classpaths classpath entries
+     * @return a key identifying the java runtime and the content of each classpath entry
+     * @throws IOException if an entry cannot be read
+     */
+    private static String key(List<String> classpaths) throws IOException {
+        StringBuilder st = new StringBuilder("jrt:")
+                .append(System.getProperty("java.home")).append(':')
+                .append(System.getProperty("java.version")).append(';');
+
+        for (String classpath : classpaths) {
+            File file = new File(classpath);
+            st.append(file.getAbsolutePath()).append(':');
+
+            if (file.isFile()) {
+                CRC32 crc = new CRC32();
+                try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                    byte[] chunk = new byte[8192];
+                    int read;
+                    while ((read = in.read(chunk)) != -1) {
+                        crc.update(chunk, 0, read);
+                    }
+                }
+                st.append(Long.toHexString(crc.getValue()));
+            } else {
+                st.append(file.lastModified());
+            }
+            st.append(';');
+        }
+
+        return st.toString();
+    }
+
+    private static List<IndexedType> scan(List<String> classpaths) throws IOException {
+        LinkedHashMap<String, IndexedType> scanned = new LinkedHashMap<>();
+
+        scanRuntime(scanned);
+
+        for (String classpath : classpaths) {
+            File file = new File(classpath);
+
+            if (file.isFile()) {
+                try (JarFile jar = new JarFile(file)) {
+                    Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        JarEntry entry = entries.nextElement();
+                        if (entry.getName().endsWith(".class")) {
+                            try (InputStream in = jar.getInputStream(entry)) {
+                                add(scanned, readFully(in));
+                            }
+                        }
+                    }
+                }
+            } else if (file.isDirectory()) {
+                scanClasses(file.toPath(), scanned);
+            }
+        }
+
+        return new ArrayList<>(scanned.values());
+    }
+
+    /**
+     * Since java 9 the runtime classes are not in <tt>rt.jar</tt> anymore but in the <tt>jrt:/</tt> image
+     *
+     * @param scanned where to put the types
+     * @throws IOException if the image cannot be read
+     */
+    private static void scanRuntime(Map<String, IndexedType> scanned) throws IOException {
+        FileSystem jrt;
+        try {
+            jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+        } catch (ProviderNotFoundException | FileSystemNotFoundException e) {
+            return; // java 8, the runtime is given as a classpath entry
+        }
+
+        scanClasses(jrt.getPath("/modules"), scanned);
+    }
+
+    private static void scanClasses(Path root, Map<String, IndexedType> scanned) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> iterator = paths.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                if (path.toString().endsWith(".class")) {
+                    add(scanned, Files.readAllBytes(path));
+                }
+            }
+        }
+    }
+
+    private static void add(Map<String, IndexedType> scanned, byte[] classFile) {
+        try {
+            IndexedType type = ClassFileReader.read(classFile);
+            if (type != null) {
+                scanned.putIfAbsent(type.qualifiedName, type); // first one in the classpath wins
+            }
+        } catch (IOException | RuntimeException e) {
+            Logger.println("Index", "skipping a class file (" + e.getMessage() + ")", Logger.DEBUG);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            bytes.write(chunk, 0, read);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void write(File location, String key, List<IndexedType> scanned) throws IOException {
+        scanned.sort(Comparator.comparing(t -> t.qualifiedName));
+
+        HashMap<String, Integer> typeIds = new HashMap<>(scanned.size());
+        for (IndexedType type : scanned) {
+            typeIds.put(type.qualifiedName, typeIds.size());
+        }
+
+        LinkedHashMap<String, Integer> stringIds = new LinkedHashMap<>();
+        int[] typeEntries = new int[TYPE_SIZE * scanned.size()];
+        List<Integer> superEntries = new ArrayList<>();
+        List<Integer> methodEntries = new ArrayList<>();
+
+        for (int t = 0; t < scanned.size(); t++) {
+            IndexedType type = scanned.get(t);
+            int lastDot = type.qualifiedName.lastIndexOf('.');
+
+            typeEntries[TYPE_SIZE * t] = id(stringIds, type.qualifiedName);
+            typeEntries[TYPE_SIZE * t + 1] = id(stringIds, lastDot == -1 ? "" : type.qualifiedName.substring(0, lastDot));
+            typeEntries[TYPE_SIZE * t + 2] = id(stringIds, type.qualifiedName.substring(lastDot + 1));
+
+            typeEntries[TYPE_SIZE * t + 3] = superEntries.size();
+            for (String superType : type.superTypes) {
+                Integer superId = typeIds.get(superType);
+                if (superId != null) { // non public super types are not indexed
+                    superEntries.add(superId);
+                }
+            }
+            typeEntries[TYPE_SIZE * t + 4] = superEntries.size() - typeEntries[TYPE_SIZE * t + 3];
+
+            typeEntries[TYPE_SIZE * t + 5] = methodEntries.size() / METHOD_SIZE;
+            for (IndexedMethod method : type.methods) {
+                methodEntries.add(id(stringIds, method.name));
+                methodEntries.add(method.parameters.size());
+                methodEntries.add(id(stringIds, String.join(", ", method.parameters)));
+            }
+            typeEntries[TYPE_SIZE * t + 6] = type.methods.size();
+        }
+
+        File parent = location.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(location)))) {
+            byte[] keyBytes = key.getBytes(UTF_8);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(keyBytes.length);
+            out.write(keyBytes);
+
+            out.writeInt(stringIds.size());
+            out.writeInt(scanned.size());
+            out.writeInt(superEntries.size());
+            out.writeInt(methodEntries.size() / METHOD_SIZE);
+
+            List<byte[]> encoded = new ArrayList<>(stringIds.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (String string : stringIds.keySet()) {
+                byte[] bytes = string.getBytes(UTF_8);
+                encoded.add(bytes);
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+
+            for (int entry : typeEntries) {
+                out.writeInt(entry);
+            }
+            for (int entry : superEntries) {
+                out.writeInt(entry);
+            }
+            for (int entry : methodEntries) {
+                out.writeInt(entry);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static int id(Map<String, Integer> stringIds, String string) {
+        return stringIds.computeIfAbsent(string, k -> stringIds.size());
+    }
+
+    /**
+     * Method found in the index
+     */
+    public static class Method {
+        private final String packageName;
+        private final String className;
+        private final List<String> parameters;
+
+        Method(String packageName, String className, List<String> parameters) {
+            this.packageName = packageName;
+            this.className = className;
+            this.parameters = parameters;
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        /**
+         * @return simple name of the declaring class
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return simple names of the parameter types
+         */
+        public List<String> getParameters() {
+            return parameters;
+        }
+    }
+}
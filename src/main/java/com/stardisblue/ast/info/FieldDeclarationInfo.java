@@ -2,8 +2,6 @@ package com.stardisblue.ast.info;
 
 
 import com.stardisblue.logging.Logger;
-import org.eclipse.jdt.core.dom.FieldDeclaration;
-import org.eclipse.jdt.core.dom.Type;
 
 import java.util.List;
 
@@ -14,31 +12,30 @@ public class FieldDeclarationInfo {
 
 
     private final TypeDeclarationInfo parent;
-    private final Type type;
-    private final List fragments;
+    private final String type;
+    private final List<String> fragments;
 
 
     /**
      * Default constructer, the parent is injected using DI
      *
-     * @param parent parent element
-     * @param node   current decorated element
+     * @param parent    parent element
+     * @param type      declared type
+     * @param fragments names of the declared variables
      */
-    public FieldDeclarationInfo(TypeDeclarationInfo parent,
-                                FieldDeclaration node) {
+    public FieldDeclarationInfo(TypeDeclarationInfo parent, String type, List<String> fragments) {
         this.parent = parent;
-        this.type = node.getType();
-        this.fragments = node.fragments();
+        this.type = type;
+        this.fragments = fragments;
 
         Logger.println("└─ " + getType() + " : " + getFragments(), Logger.DEBUG);
-
     }
 
-    public Type getType() {
+    public String getType() {
         return type;
     }
 
-    public List getFragments() {
+    public List<String> getFragments() {
         return fragments;
     }
 }
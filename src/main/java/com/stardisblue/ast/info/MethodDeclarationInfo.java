@@ -2,10 +2,10 @@ package com.stardisblue.ast.info;
 
 
 import com.stardisblue.logging.Logger;
-import org.eclipse.jdt.core.dom.CompilationUnit;
-import org.eclipse.jdt.core.dom.MethodDeclaration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -15,37 +15,49 @@ public class MethodDeclarationInfo {
 
     private final TypeDeclarationInfo parent;
     private final List<ParameterInfo> parameters;
+    /**
+     * invoked methods, each one once, in order of first invocation
+     */
     private final List<MethodInvocationInfo> methodInvocations;
+    /**
+     * number of call sites of each invoked method
+     */
+    private int[] callCounts = new int[0];
+    /**
+     * methods run without a method invocation, each one once : instance creations, constructor and <tt>super</tt>
+     * invocations, method references. Only the queries use them, the report counts the method invocations
+     */
+    private final List<MethodInvocationInfo> references = new ArrayList<>(0);
+    private int[] referenceCounts = new int[0];
+    private final List<UnresolvedInvocationInfo> unresolvedInvocations = new ArrayList<>();
 
     private final String name;
+    private final String returnType;
     private String fullName;
-    private int numberOfLines;
+    private final int numberOfLines;
     private String strParameters;
+    private int signatureId = -1;
 
     /**
      * Default constructer, elements are passed through via DI,
      * the arrays are preallocated using size parameters
      *
-     * @param cu                    compilation unit used to get numberoflines
      * @param parent                parent element
-     * @param node                  decorated element
+     * @param name                  name of the method
+     * @param returnType            declared return type, empty for a constructor
+     * @param numberOfLines         number of lines of the method
      * @param parametersSize        number of parameters
-     * @param methodInvocationsSize number of methodInvocations
+     * @param methodInvocationsSize number of invoked methods
      */
-    public MethodDeclarationInfo(CompilationUnit cu, MethodDeclaration node, TypeDeclarationInfo parent,
+    public MethodDeclarationInfo(TypeDeclarationInfo parent, String name, String returnType, int numberOfLines,
                                  int parametersSize, int methodInvocationsSize) {
         // DI
         this.parent = parent;
-        this.name = node.getName().toString();
+        this.name = name;
+        this.returnType = returnType;
         this.parameters = new ArrayList<>(parametersSize);
         this.methodInvocations = new ArrayList<>(methodInvocationsSize);
-
-        // counting line numbers
-        int startLine = cu.getLineNumber(node.getStartPosition());
-        // -1 for lenght correction
-        int endLine = cu.getLineNumber(node.getStartPosition() + node.getLength() - 1);
-
-        this.numberOfLines = endLine - startLine;
+        this.numberOfLines = numberOfLines;
 
         Logger.println("└─ " + this.getShortName() + ": " + parametersSize + " parameters, "
                                + this.numberOfLines() + " lines",
@@ -56,11 +68,109 @@ public class MethodDeclarationInfo {
      * Need to be called once, used to resolve cyclic dependency injection
      *
      * @param parameters        the array of parameters
-     * @param methodInvocations the array of method invocations
+     * @param methodInvocations the array of method invocations, one per call site
      */
     public void setup(List<ParameterInfo> parameters, List<MethodInvocationInfo> methodInvocations) {
         this.parameters.addAll(parameters);
+        callCounts = aggregate(methodInvocations, this.methodInvocations);
+        log();
+
+        this.signatureId = parent.getSymbols().intern(parent.getName() + "." + getCleanMethod());
+    }
+
+    /**
+     * Need to be called once, used when the invocations are already aggregated
+     *
+     * @param parameters        the array of parameters
+     * @param methodInvocations the invoked methods, each one once
+     * @param callCounts        the number of call sites of each invoked method
+     */
+    public void setup(List<ParameterInfo> parameters, List<MethodInvocationInfo> methodInvocations,
+                      int[] callCounts) {
+        this.parameters.addAll(parameters);
         this.methodInvocations.addAll(methodInvocations);
+        this.callCounts = callCounts;
+        log();
+
+        this.signatureId = parent.getSymbols().intern(parent.getName() + "." + getCleanMethod());
+    }
+
+    /**
+     * Need to be called once, after {@link #setup(List, List)}
+     *
+     * @param references the referenced methods, one per call site
+     */
+    public void setupReferences(List<MethodInvocationInfo> references) {
+        referenceCounts = aggregate(references, this.references);
+    }
+
+    /**
+     * Need to be called once, used when the references are already aggregated
+     *
+     * @param references      the referenced methods, each one once
+     * @param referenceCounts the number of call sites of each referenced method
+     */
+    public void setupReferences(List<MethodInvocationInfo> references, int[] referenceCounts) {
+        this.references.addAll(references);
+        this.referenceCounts = referenceCounts;
+    }
+
+    /**
+     * Need to be called once, the invocations that could not be binded
+     *
+     * @param unresolvedInvocations the array of invocations to resolve later on
+     */
+    public void setupUnresolved(List<UnresolvedInvocationInfo> unresolvedInvocations) {
+        this.unresolvedInvocations.addAll(unresolvedInvocations);
+    }
+
+    /**
+     * Replaces the method invocations and the references by the ones resolved from the unresolved invocations
+     *
+     * @param methodInvocations the resolved invocations, one per call site
+     * @param references        the resolved references, one per call site
+     */
+    public void resolve(List<MethodInvocationInfo> methodInvocations, List<MethodInvocationInfo> references) {
+        this.methodInvocations.clear();
+        callCounts = aggregate(methodInvocations, this.methodInvocations);
+        log();
+
+        this.references.clear();
+        referenceCounts = aggregate(references, this.references);
+    }
+
+    /**
+     * Keeps each invoked method once with its number of call sites
+     *
+     * @param callSites the invocations, one per call site
+     * @param targets   where each invoked method is added once
+     * @return the number of call sites of each target
+     */
+    private static int[] aggregate(List<MethodInvocationInfo> callSites, List<MethodInvocationInfo> targets) {
+        HashMap<Integer, Integer> indexes = new HashMap<>();
+        int[] counts = new int[callSites.size()];
+
+        for (MethodInvocationInfo callSite : callSites) {
+            Integer index = indexes.get(callSite.getTargetId());
+            if (index == null) {
+                index = targets.size();
+                indexes.put(callSite.getTargetId(), index);
+                targets.add(callSite);
+            }
+
+            counts[index]++;
+        }
+
+        return Arrays.copyOf(counts, targets.size());
+    }
+
+    private void log() {
+        if (!Logger.enabled()) return;
+
+        for (int i = 0; i < methodInvocations.size(); i++) {
+            Logger.println("  └─ " + methodInvocations.get(i).getShortWithParamTypes() +
+                                   (callCounts[i] > 1 ? " x" + callCounts[i] : ""), Logger.DEBUG);
+        }
     }
 
 
@@ -76,6 +186,10 @@ public class MethodDeclarationInfo {
         return name;
     }
 
+    public String getReturnType() {
+        return returnType;
+    }
+
     public String getMethod() {
         return getName() + "(" + getStringParameters() + ")";
     }
@@ -97,7 +211,14 @@ public class MethodDeclarationInfo {
     }
 
     public String getShortWithParamTypes() {
-        return parent.getName() + "." + getCleanMethod();
+        return parent.getSymbols().name(signatureId);
+    }
+
+    /**
+     * @return symbol id of {@link #getShortWithParamTypes()}, known once {@link #setup(List, List)} is called
+     */
+    public int getSignatureId() {
+        return signatureId;
     }
 
     public String getFullWithParamTypes() {
@@ -142,10 +263,45 @@ public class MethodDeclarationInfo {
 
     }
 
+    public List<ParameterInfo> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the invoked methods, each one once
+     */
     public List<MethodInvocationInfo> getMethodCalls() {
         return methodInvocations;
     }
 
+    /**
+     * @return foreach invoked method (same index), its number of call sites
+     */
+    public int[] getCallCounts() {
+        return callCounts;
+    }
+
+    /**
+     * @return the referenced methods, each one once
+     */
+    public List<MethodInvocationInfo> getReferences() {
+        return references;
+    }
+
+    /**
+     * @return foreach referenced method (same index), its number of call sites
+     */
+    public int[] getReferenceCounts() {
+        return referenceCounts;
+    }
+
+    /**
+     * @return the invocations and the references that could not be binded
+     */
+    public List<UnresolvedInvocationInfo> getUnresolvedCalls() {
+        return unresolvedInvocations;
+    }
+
     public TypeDeclarationInfo getParent() {
         return parent;
     }
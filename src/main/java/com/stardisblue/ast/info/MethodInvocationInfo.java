@@ -1,64 +1,68 @@
 package com.stardisblue.ast.info;
 
-import com.stardisblue.logging.Logger;
-import org.eclipse.jdt.core.dom.IMethodBinding;
-import org.eclipse.jdt.core.dom.ITypeBinding;
-import org.eclipse.jdt.core.dom.MethodInvocation;
+import com.stardisblue.ast.structure.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Decorating MethodInvocation
+ * Decorating the target of a MethodInvocation, shared by all the call sites invoking the same method
  */
 public class MethodInvocationInfo {
-    private final MethodDeclarationInfo parent;
     private final String name;
     private final String type;
     private final String packageName;
     private final String classType;
-    private final boolean binded;
-    private final ArrayList<String> parameters = new ArrayList<>();
+    private final List<String> parameters;
+    private final boolean external;
+    private final SymbolTable symbols;
+
+    // interned once, the graphs and the matrix only use the ids
+    private final int targetId;
+    private final int signatureId;
+    private final int classTypeId;
+    private final int classFullNameId;
+    private final int packageNameId;
 
     /**
-     * Default constructer, elements are passed through via DI,
+     * Default constructer, elements are passed through via DI, only binded invocations are decorated
      *
-     * @param parent parent element
-     * @param node   decorated element
+     * @param symbols     table the names are interned in
+     * @param name        name of the invoked method
+     * @param type        declaring type of the invoked method
+     * @param packageName package of the declaring type
+     * @param classType   declaring class of the invoked method
+     * @param parameters  types of the parameters
      */
-    public MethodInvocationInfo(MethodDeclarationInfo parent,
-                                MethodInvocation node) {
-        this.parent = parent;
-
-        IMethodBinding binding = node.resolveMethodBinding();
-
-        if (binding != null) {
-            this.binded = true;
-            this.name = binding.getName();
-
-            for (ITypeBinding iTypeBinding : binding.getParameterTypes()) {
-
-                ITypeBinding typeDeclaration = iTypeBinding.getTypeDeclaration();
-
-                parameters.add(typeDeclaration.getName());
-            }
-
-            this.type = binding.getDeclaringClass().getName();
-            this.packageName = binding.getDeclaringClass().getPackage().getName();
-            this.classType = binding.getDeclaringClass().getTypeDeclaration().getName();
-
-            Logger.println("  └─ " + this.getShortWithParamTypes(), Logger.DEBUG);
-
-        } else {
-            this.binded = false;
-            this.name = "";
-            this.type = "";
-            this.packageName = "";
-            this.classType = "";
-        }
+    public MethodInvocationInfo(SymbolTable symbols, String name, String type, String packageName, String classType,
+                                List<String> parameters) {
+        this(symbols, name, type, packageName, classType, parameters, false);
     }
 
-    public boolean isBinded() {
-        return binded;
+    /**
+     * @param symbols     table the names are interned in
+     * @param name        name of the invoked method
+     * @param type        declaring type of the invoked method
+     * @param packageName package of the declaring type
+     * @param classType   declaring class of the invoked method
+     * @param parameters  types of the parameters
+     * @param external    if the invoked method could not be found in the project
+     */
+    public MethodInvocationInfo(SymbolTable symbols, String name, String type, String packageName, String classType,
+                                List<String> parameters, boolean external) {
+        this.symbols = symbols;
+        this.external = external;
+        this.name = name;
+        this.type = type;
+        this.packageName = packageName;
+        this.classType = classType;
+        this.parameters = new ArrayList<>(parameters);
+
+        this.targetId = symbols.intern(getFullName());
+        this.signatureId = symbols.intern(getShortName() + "(" + String.join(", ", parameters) + ")");
+        this.classTypeId = symbols.intern(classType);
+        this.classFullNameId = symbols.intern(getClassFullName());
+        this.packageNameId = symbols.intern(packageName);
     }
 
     public String getShortName() {
@@ -89,7 +93,53 @@ public class MethodInvocationInfo {
         return type;
     }
 
+    /**
+     * @return if the invoked method was not found while resolving it without bindings
+     */
+    public boolean isExternal() {
+        return external;
+    }
+
+    public List<String> getParameters() {
+        return parameters;
+    }
+
     public String getShortWithParamTypes() {
-        return getShortName() + "(" + String.join(", ", parameters) + ")";
+        return symbols.name(signatureId);
+    }
+
+    /**
+     * @return symbol id of {@link #getFullName()}, two call sites invoke the same method if they have the same one
+     */
+    public int getTargetId() {
+        return targetId;
+    }
+
+    /**
+     * @return symbol id of {@link #getShortWithParamTypes()}
+     */
+    public int getSignatureId() {
+        return signatureId;
+    }
+
+    /**
+     * @return symbol id of {@link #getClassType()}
+     */
+    public int getClassTypeId() {
+        return classTypeId;
+    }
+
+    /**
+     * @return symbol id of {@link #getClassFullName()}
+     */
+    public int getClassFullNameId() {
+        return classFullNameId;
+    }
+
+    /**
+     * @return symbol id of {@link #getPackageName()}
+     */
+    public int getPackageNameId() {
+        return packageNameId;
     }
 }
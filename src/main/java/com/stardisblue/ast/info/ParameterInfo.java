@@ -1,31 +1,28 @@
 package com.stardisblue.ast.info;
 
-import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
-
 /**
  * Decorating a MethodParameter
  */
 public class ParameterInfo {
 
     private final MethodDeclarationInfo parent;
-    private final ParameterizedTypeInfo parameterizedTypeDecoratorType;
     private final String name;
     private final String type;
+    private final String classType;
 
     /**
      * Default constructer, elements are passed through via DI,
      *
-     * @param parent                         parent element
-     * @param node                           decorated element
-     * @param parameterizedTypeDecoratorType parameter type
+     * @param parent    parent element
+     * @param name      name of the parameter
+     * @param type      declared type
+     * @param classType name of the class of the parameter, null if it is the declared type
      */
-    public ParameterInfo(MethodDeclarationInfo parent,
-                         SingleVariableDeclaration node,
-                         ParameterizedTypeInfo parameterizedTypeDecoratorType) {
+    public ParameterInfo(MethodDeclarationInfo parent, String name, String type, String classType) {
         this.parent = parent;
-        this.name = node.getName().toString();
-        this.type = node.getType().toString();
-        this.parameterizedTypeDecoratorType = parameterizedTypeDecoratorType;
+        this.name = name;
+        this.type = type;
+        this.classType = classType == null ? type : classType;
     }
 
     public String getName() {
@@ -37,8 +34,7 @@ public class ParameterInfo {
     }
 
     public String getClassType() {
-        if (parameterizedTypeDecoratorType == null) return getType();
-        return parameterizedTypeDecoratorType.getName();
+        return classType;
     }
 
     public String getShortName() {
@@ -1,9 +1,8 @@
 package com.stardisblue.ast.info;
 
 
+import com.stardisblue.ast.structure.SymbolTable;
 import com.stardisblue.logging.Logger;
-import org.eclipse.jdt.core.dom.CompilationUnit;
-import org.eclipse.jdt.core.dom.TypeDeclaration;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,32 +13,47 @@ import java.util.List;
 public class TypeDeclarationInfo {
     private final List<FieldDeclarationInfo> fieldDeclarationInfos;
     private final List<MethodDeclarationInfo> methodDeclarationInfos;
+    private final List<String> imports;
+    private final List<String> superTypes;
+    private final SymbolTable symbols;
 
-    private String name;
-    private String packageName;
-    private String fullName;
-    private int numberOfLines;
+    private final String name;
+    private final String packageName;
+    private final String fullName;
+    private final int numberOfLines;
 
-    public TypeDeclarationInfo(CompilationUnit parent, TypeDeclaration node, int fieldsSize, int methodsSize) {
-        this.name = node.getName().toString();
+    private final int nameId;
+    private final int fullNameId;
+    private final int packageNameId;
+
+    /**
+     * Default constructer, only the extracted facts are kept so that the AST can be dropped
+     *
+     * @param symbols       table the names are interned in
+     * @param name          name of the class
+     * @param packageName   name of the package, empty if none
+     * @param numberOfLines number of lines of the class
+     * @param imports       imports of the compilation unit (eg: <tt>java.util.List</tt>, <tt>java.io.*</tt>)
+     * @param superTypes    extended class and implemented interfaces, as written in the sources without their type
+     *                      arguments
+     * @param fieldsSize    number of fields
+     * @param methodsSize   number of methods
+     */
+    public TypeDeclarationInfo(SymbolTable symbols, String name, String packageName, int numberOfLines,
+                               List<String> imports, List<String> superTypes, int fieldsSize, int methodsSize) {
+        this.symbols = symbols;
+        this.name = name;
+        this.imports = imports;
+        this.superTypes = superTypes;
+        this.packageName = packageName;
+        this.fullName = packageName.isEmpty() ? name : packageName + "." + name;
+        this.numberOfLines = numberOfLines;
+        this.nameId = symbols.intern(name);
+        this.fullNameId = symbols.intern(fullName);
+        this.packageNameId = symbols.intern(packageName);
         this.fieldDeclarationInfos = new ArrayList<>(fieldsSize);
         this.methodDeclarationInfos = new ArrayList<>(methodsSize);
 
-        // Getting package name
-        if (parent.getPackage() != null) {
-            this.packageName = parent.getPackage().getName().toString();
-            this.fullName = getPackageName() + "." + getName();
-        } else {
-            this.packageName = "";
-            this.fullName = getName();
-        }
-
-        // counting line numbers
-        int startLine = parent.getLineNumber(node.getStartPosition());
-        // -1 for lenght correction
-        int endLine = parent.getLineNumber(node.getStartPosition() + node.getLength() - 1);
-        this.numberOfLines = endLine - startLine;
-
         // welp printing com.stardisblue.ast.logging
         Logger.printTitle(getFullName() + ": " + fieldsSize + " fields," +
                                   " " + methodsSize + " methods," +
@@ -79,6 +93,27 @@ public class TypeDeclarationInfo {
         return fullName;
     }
 
+    /**
+     * @return symbol id of {@link #getName()}
+     */
+    public int getNameId() {
+        return nameId;
+    }
+
+    /**
+     * @return symbol id of {@link #getFullName()}
+     */
+    public int getFullNameId() {
+        return fullNameId;
+    }
+
+    /**
+     * @return symbol id of {@link #getPackageName()}
+     */
+    public int getPackageNameId() {
+        return packageNameId;
+    }
+
     public int numberOfLines() {
         return numberOfLines;
     }
@@ -86,4 +121,26 @@ public class TypeDeclarationInfo {
     public List<MethodDeclarationInfo> getMethods() {
         return methodDeclarationInfos;
     }
+
+    public List<FieldDeclarationInfo> getFields() {
+        return fieldDeclarationInfos;
+    }
+
+    public List<String> getImports() {
+        return imports;
+    }
+
+    /**
+     * @return the table the names of this class, of its methods and of their invocations are interned in
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the extended class and the implemented interfaces, as written in the sources
+     */
+    public List<String> getSuperTypes() {
+        return superTypes;
+    }
 }
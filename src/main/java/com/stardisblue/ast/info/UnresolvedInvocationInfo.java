@@ -0,0 +1,75 @@
+package com.stardisblue.ast.info;
+
+/**
+ * Decorating a MethodInvocation that has not been binded, it is resolved later on using the project classes.
+ * A constructor is invoked by the name of its class, on its class.
+ */
+public class UnresolvedInvocationInfo {
+    /**
+     * number of arguments of a method reference, any method having the name can be referenced
+     */
+    public static final int UNKNOWN_ARGUMENTS = -1;
+
+    private final String name;
+    private final String receiver;
+    private final boolean receiverType;
+    private final int numberOfArguments;
+    private final boolean reference;
+
+    /**
+     * Default constructer
+     *
+     * @param name              name of the invoked method
+     * @param receiver          the expression the method is invoked on, null if invoked on <tt>this</tt>,
+     *                          empty if unknown
+     * @param receiverType      if the receiver is already the name of a type (eg: declared type of a variable)
+     * @param numberOfArguments number of arguments of the invocation, {@link #UNKNOWN_ARGUMENTS} for a method
+     *                          reference
+     */
+    public UnresolvedInvocationInfo(String name, String receiver, boolean receiverType, int numberOfArguments) {
+        this(name, receiver, receiverType, numberOfArguments, false);
+    }
+
+    /**
+     * @param name              name of the invoked method
+     * @param receiver          the expression the method is invoked on, null if invoked on <tt>this</tt>,
+     *                          empty if unknown
+     * @param receiverType      if the receiver is already the name of a type (eg: declared type of a variable)
+     * @param numberOfArguments number of arguments of the invocation, {@link #UNKNOWN_ARGUMENTS} for a method
+     *                          reference
+     * @param reference         if the method is run without a method invocation, see
+     *                          {@link MethodDeclarationInfo#getReferences()}
+     */
+    public UnresolvedInvocationInfo(String name, String receiver, boolean receiverType, int numberOfArguments,
+                                    boolean reference) {
+        this.name = name;
+        this.receiver = receiver;
+        this.receiverType = receiverType;
+        this.numberOfArguments = numberOfArguments;
+        this.reference = reference;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getReceiver() {
+        return receiver;
+    }
+
+    public boolean isReceiverType() {
+        return receiverType;
+    }
+
+    public boolean isOnThis() {
+        return receiver == null;
+    }
+
+    public int numberOfArguments() {
+        return numberOfArguments;
+    }
+
+    public boolean isReference() {
+        return reference;
+    }
+}
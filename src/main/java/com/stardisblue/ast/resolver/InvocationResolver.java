@@ -0,0 +1,313 @@
+package com.stardisblue.ast.resolver;
+
+import com.stardisblue.ast.index.ClasspathIndex;
+import com.stardisblue.ast.info.*;
+
+import java.util.*;
+
+/**
+ * Resolves the invocations that were not binded using the classes of the project and their imports.
+ * <p>
+ * The receiver of an invocation is found using the declared type of the variables and fields,
+ * the invoked method is the first method having the same name and number of parameters (any number for a method
+ * reference) of the receiver, else of its closest ancestor declared in the project.
+ * If it cannot be found, the invocation is marked as external, its target is then looked for in the classpath index.
+ */
+public class InvocationResolver {
+    /**
+     * name used when the type of the receiver cannot be guessed
+     */
+    public static final String UNKNOWN_TYPE = "?";
+
+    private final ClasspathIndex index;
+    private HashMap<String, TypeDeclarationInfo> types;
+
+    /**
+     * @param index index of the classpath used for the external invocations, null if there is none
+     */
+    public InvocationResolver(ClasspathIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Replaces the invocations of each method by the resolution of its unresolved invocations
+     *
+     * @param classes all the classes of the project
+     */
+    public void resolve(List<TypeDeclarationInfo> classes) {
+        types = new HashMap<>(classes.size());
+        for (TypeDeclarationInfo type : classes) {
+            types.putIfAbsent(type.getFullName(), type);
+        }
+
+        for (TypeDeclarationInfo type : classes) {
+            for (MethodDeclarationInfo method : type.getMethods()) {
+                List<MethodInvocationInfo> resolved = new ArrayList<>(method.getUnresolvedCalls().size());
+                List<MethodInvocationInfo> references = new ArrayList<>(0);
+
+                for (UnresolvedInvocationInfo invocation : method.getUnresolvedCalls()) {
+                    (invocation.isReference() ? references : resolved).add(resolve(type, invocation));
+                }
+
+                method.resolve(resolved, references);
+            }
+        }
+    }
+
+    private MethodInvocationInfo resolve(TypeDeclarationInfo caller, UnresolvedInvocationInfo invocation) {
+        String receiverType = receiverType(caller, invocation);
+
+        if (receiverType == null) {
+            return new MethodInvocationInfo(caller.getSymbols(), invocation.getName(), UNKNOWN_TYPE, "",
+                                            UNKNOWN_TYPE, unknownParameters(invocation), true);
+        }
+
+        TypeDeclarationInfo target = invocation.isOnThis() ? caller : find(caller, receiverType);
+
+        if (target != null) {
+            MethodDeclarationInfo declaration = findMethod(target, invocation);
+
+            if (declaration != null) {
+                List<String> parameters = new ArrayList<>(declaration.numberOfParameters());
+                for (ParameterInfo parameter : declaration.getParameters()) {
+                    parameters.add(parameter.getShortName());
+                }
+
+                // the class declaring the method, the receiver may inherit it
+                TypeDeclarationInfo declaring = declaration.getParent();
+                return new MethodInvocationInfo(caller.getSymbols(), invocation.getName(), declaring.getName(),
+                                                declaring.getPackageName(), declaring.getName(), parameters);
+            }
+
+            // probably inherited from a class that is not in the project
+            return new MethodInvocationInfo(caller.getSymbols(), invocation.getName(), target.getName(),
+                                            target.getPackageName(), target.getName(),
+                                            unknownParameters(invocation), true);
+        }
+
+        if (index != null) {
+            MethodInvocationInfo indexed = resolveIndexed(caller, invocation, receiverType);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+
+        String simpleName = simpleName(receiverType);
+        return new MethodInvocationInfo(caller.getSymbols(), invocation.getName(), simpleName,
+                                        packageName(caller, receiverType), simpleName,
+                                        unknownParameters(invocation), true);
+    }
+
+    /**
+     * Looks for the type of the receiver in the classpath index, using the imports and <tt>java.lang</tt>
+     *
+     * @param caller       class containing the invocation
+     * @param invocation   the invocation
+     * @param receiverType name of the type of the receiver, as written in the sources
+     * @return the external invocation, null if the type is not indexed
+     */
+    private MethodInvocationInfo resolveIndexed(TypeDeclarationInfo caller, UnresolvedInvocationInfo invocation,
+                                                String receiverType) {
+        for (String candidate : candidates(caller, receiverType)) {
+            ClasspathIndex.Method target = index.findMethod(candidate, invocation.getName(),
+                                                            invocation.numberOfArguments());
+            if (target != null) {
+                return new MethodInvocationInfo(caller.getSymbols(), invocation.getName(), target.getClassName(),
+                                                target.getPackageName(), target.getClassName(),
+                                                target.getParameters(), true);
+            }
+
+            if (index.contains(candidate)) {
+                String simpleName = simpleName(candidate);
+                return new MethodInvocationInfo(caller.getSymbols(), invocation.getName(), simpleName,
+                                                candidate.substring(0, candidate.length() - simpleName.length() - 1),
+                                                simpleName, unknownParameters(invocation), true);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param caller class containing the invocation
+     * @param type   name of a type as written in the sources
+     * @return the qualified names the type can have, in the order java looks for them
+     */
+    private static List<String> candidates(TypeDeclarationInfo caller, String type) {
+        if (type.indexOf('.') != -1) {
+            return Collections.singletonList(type);
+        }
+
+        List<String> candidates = new ArrayList<>();
+        for (String imported : caller.getImports()) {
+            if (imported.endsWith("." + type)) {
+                candidates.add(imported);
+            }
+        }
+        for (String imported : caller.getImports()) {
+            if (imported.endsWith(".*")) {
+                candidates.add(imported.substring(0, imported.length() - 1) + type);
+            }
+        }
+        candidates.add("java.lang." + type);
+
+        return candidates;
+    }
+
+    /**
+     * @param caller     class containing the invocation
+     * @param invocation the invocation
+     * @return the name of the type of the receiver, as written in the sources, null if it cannot be guessed
+     */
+    private String receiverType(TypeDeclarationInfo caller, UnresolvedInvocationInfo invocation) {
+        if (invocation.isOnThis()) {
+            return caller.getFullName();
+        }
+
+        String receiver = invocation.getReceiver();
+
+        if (invocation.isReceiverType()) {
+            return erase(receiver);
+        }
+
+        if (receiver.isEmpty()) {
+            return null;
+        }
+
+        if (receiver.indexOf('.') == -1) {
+            for (FieldDeclarationInfo field : caller.getFields()) {
+                if (field.getFragments().contains(receiver)) {
+                    return erase(field.getType());
+                }
+            }
+        }
+
+        // by convention, a name starting with an uppercase letter is a class (static invocation)
+        return Character.isUpperCase(simpleName(receiver).charAt(0)) ? receiver : null;
+    }
+
+    private TypeDeclarationInfo find(TypeDeclarationInfo caller, String type) {
+        return find(types, caller, type);
+    }
+
+    /**
+     * Finds the class using the package and the imports of the caller
+     *
+     * @param types  classes of the project, by full name
+     * @param caller class where the type is written
+     * @param type   name of the type as written in the sources
+     * @return the class of the project, null if it is not in the project
+     */
+    public static TypeDeclarationInfo find(Map<String, TypeDeclarationInfo> types, TypeDeclarationInfo caller,
+                                           String type) {
+        if (type.indexOf('.') != -1) {
+            return types.get(type);
+        }
+
+        for (String imported : caller.getImports()) {
+            if (imported.endsWith("." + type)) {
+                return types.get(imported);
+            }
+        }
+
+        TypeDeclarationInfo samePackage = types.get(caller.getPackageName().isEmpty() ?
+                                                            type :
+                                                            caller.getPackageName() + "." + type);
+        if (samePackage != null) {
+            return samePackage;
+        }
+
+        for (String imported : caller.getImports()) {
+            if (imported.endsWith(".*")) {
+                TypeDeclarationInfo onDemand = types.get(imported.substring(0, imported.length() - 1) + type);
+                if (onDemand != null) {
+                    return onDemand;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Looks for the invoked method in the target, then breadth first in its ancestors declared in the project, like
+     * {@link com.stardisblue.ast.Compute#overrides(List)}
+     *
+     * @param target     class of the receiver
+     * @param invocation the invocation
+     * @return the method, declared by the target or inherited, null if none of them declares it
+     */
+    private MethodDeclarationInfo findMethod(TypeDeclarationInfo target, UnresolvedInvocationInfo invocation) {
+        HashSet<TypeDeclarationInfo> visited = new HashSet<>();
+        ArrayDeque<TypeDeclarationInfo> queue = new ArrayDeque<>();
+        visited.add(target);
+        queue.add(target);
+        while (!queue.isEmpty()) {
+            TypeDeclarationInfo current = queue.remove();
+
+            MethodDeclarationInfo method = declaredMethod(current, invocation);
+            if (method != null) {
+                return method;
+            }
+
+            for (String superType : current.getSuperTypes()) {
+                TypeDeclarationInfo ancestor = find(current, superType);
+                if (ancestor != null && visited.add(ancestor)) {
+                    queue.add(ancestor);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static MethodDeclarationInfo declaredMethod(TypeDeclarationInfo target,
+                                                        UnresolvedInvocationInfo invocation) {
+        for (MethodDeclarationInfo method : target.getMethods()) {
+            if (method.getName().equals(invocation.getName()) &&
+                    (invocation.numberOfArguments() == UnresolvedInvocationInfo.UNKNOWN_ARGUMENTS ||
+                            method.numberOfParameters() == invocation.numberOfArguments())) {
+                return method;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param caller class containing the invocation
+     * @param type   name of a type that is not in the project
+     * @return the package of the type if it can be found using the imports, empty otherwise
+     */
+    private static String packageName(TypeDeclarationInfo caller, String type) {
+        int lastDot = type.lastIndexOf('.');
+        if (lastDot != -1) {
+            return type.substring(0, lastDot);
+        }
+
+        for (String imported : caller.getImports()) {
+            if (imported.endsWith("." + type)) {
+                return imported.substring(0, imported.length() - type.length() - 1);
+            }
+        }
+
+        return "";
+    }
+
+    private static List<String> unknownParameters(UnresolvedInvocationInfo invocation) {
+        return Collections.nCopies(Math.max(0, invocation.numberOfArguments()), UNKNOWN_TYPE);
+    }
+
+    private static String simpleName(String type) {
+        return type.substring(type.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * @param type a type as written in the sources
+     * @return the type without its type arguments
+     */
+    private static String erase(String type) {
+        int typeArguments = type.indexOf('<');
+        return typeArguments == -1 ? type : type.substring(0, typeArguments);
+    }
+}
@@ -0,0 +1,332 @@
+package com.stardisblue.ast.server;
+
+import com.stardisblue.ast.Compute;
+import com.stardisblue.ast.JsonWriter;
+import com.stardisblue.ast.Parser;
+import com.stardisblue.ast.Workspace;
+import com.stardisblue.ast.Write;
+import com.stardisblue.ast.index.ClasspathIndex;
+import com.stardisblue.ast.info.MethodDeclarationInfo;
+import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.resolver.InvocationResolver;
+import com.stardisblue.ast.structure.CallGraphs;
+import com.stardisblue.ast.structure.Graph;
+import com.stardisblue.ast.structure.Matrix;
+import com.stardisblue.logging.Logger;
+import com.stardisblue.utils.ListUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps the analyzer loaded and answers queries over a local HTTP endpoint.
+ * <p>
+ * The facts of the most recently queried projects are kept in memory, a query only parses the files that changed since
+ * the previous one. Each endpoint takes the folder of the sources as the {@code path} query parameter, the default
+ * project is used when it is missing. Only the folders under one of the roots given at startup can be analyzed, any
+ * other path is answered with a 403 :
+ * <ul>
+ * <li>{@code /analyze} refreshes the project</li>
+ * <li>{@code /summary} general information about the project</li>
+ * <li>{@code /graph/method} and {@code /graph/class} the call graphs</li>
+ * <li>{@code /matrix} the class coupling matrix, as <tt>[row, column, invocations]</tt> pairs with row &lt;= column</li>
+ * </ul>
+ * Queries are answered one at a time by the thread of the server.
+ */
+public class AnalysisServer {
+
+    private final List<String> classpaths;
+    private final int threads;
+    private final InvocationResolver resolver;
+    private final String defaultPath;
+    private final List<Path> roots = new ArrayList<>();
+
+    /**
+     * projects by canonical path, the least recently queried is forgotten when there are too many
+     */
+    private final LinkedHashMap<String, Project> projects;
+
+    private HttpServer server;
+
+    /**
+     * @param classpaths  classpath used to resolve the bindings
+     * @param threads     number of threads used to parse the files
+     * @param fast        if the files are parsed without bindings
+     * @param index       index used in fast mode, can be null
+     * @param defaultPath project used when a query has no path
+     * @param roots       folders whose subfolders can be analyzed, the default project only if empty
+     * @param maxProjects number of projects kept in memory
+     * @throws IOException if a root cannot be resolved
+     */
+    public AnalysisServer(List<String> classpaths, int threads, boolean fast, ClasspathIndex index,
+                          String defaultPath, List<String> roots, int maxProjects) throws IOException {
+        this.classpaths = classpaths;
+        this.threads = threads;
+        this.resolver = fast ? new InvocationResolver(index) : null;
+        this.defaultPath = defaultPath;
+
+        for (String root : roots.isEmpty() ? Collections.singletonList(defaultPath) : roots) {
+            this.roots.add(new File(root).getCanonicalFile().toPath());
+        }
+
+        if (maxProjects < 1) {
+            throw new IllegalArgumentException("at least one project has to be kept, got " + maxProjects);
+        }
+        this.projects = new LinkedHashMap<String, Project>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Project> eldest) {
+                if (size() <= maxProjects) return false;
+
+                Logger.println("Forgotten", eldest.getKey(), Logger.INFO);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Analyzes the default project, so that the first query is as fast as the next ones, and starts listening
+     *
+     * @param port port on the loopback interface
+     * @throws IOException if the server cannot be started
+     */
+    public void start(int port) throws IOException {
+        long start = System.currentTimeMillis();
+        project(defaultPath);
+        Logger.println("Warmed up", (System.currentTimeMillis() - start) + " ms", Logger.INFO);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+
+        server.createContext("/analyze", exchange -> answer(exchange, this::analyze));
+        server.createContext("/summary", exchange -> answer(exchange, project -> project.summary));
+        server.createContext("/graph/method", exchange -> answer(exchange, project -> project.methodGraph));
+        server.createContext("/graph/class", exchange -> answer(exchange, project -> project.classGraph));
+        server.createContext("/matrix", exchange -> answer(exchange, project -> project.matrix));
+
+        server.start();
+        Logger.println("Listening", "http://" + server.getAddress().getHostString() + ":" +
+                server.getAddress().getPort(), Logger.INFO);
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private String analyze(Project project) {
+        return "{\"files\": " + project.workspace.getJavaFiles().size() + ", " +
+                "\"changed\": " + project.changed + ", " +
+                "\"classes\": " + project.classes.size() + ", " +
+                "\"ms\": " + project.time + "}";
+    }
+
+    /**
+     * Refreshes the project of the query and sends the requested part of it
+     *
+     * @param exchange the query
+     * @param content  part of the project to send
+     * @throws IOException if the answer cannot be sent
+     */
+    private void answer(HttpExchange exchange, Function<Project, String> content) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                status = 404;
+                body = error("unknown endpoint " + exchange.getRequestURI().getPath());
+            } else {
+                String path = parameters(exchange.getRequestURI().getRawQuery()).getOrDefault("path", defaultPath);
+                // the roots are checked first, a path outside of them gets the same answer whether it exists or not
+                if (!isAllowed(path) || !new File(path).isDirectory()) {
+                    status = 403;
+                    body = error(path + " is not a folder under the folders served");
+                } else {
+                    body = content.apply(project(path));
+                }
+            }
+        } catch (RuntimeException e) {
+            Logger.println("Query", exchange.getRequestURI() + " failed (" + e + ")", Logger.ERROR);
+            status = 500;
+            body = error(String.valueOf(e.getMessage()));
+        }
+
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Returns the project up to date, it is analyzed again only if files changed
+     *
+     * @param path folder of the sources
+     * @return the project
+     */
+    private Project project(String path) {
+        String key = canonical(path);
+        Project project = projects.get(key);
+        if (project == null) {
+            project = new Project(new Workspace(new File(key), new Parser(classpaths, key, threads, null, resolver)));
+            projects.put(key, project);
+        }
+
+        project.refresh(threads);
+
+        return project;
+    }
+
+    /**
+     * @param path folder of the sources
+     * @return if the folder is one of the roots or under one of them, links and <tt>..</tt> are resolved first
+     */
+    private boolean isAllowed(String path) {
+        Path folder = Paths.get(canonical(path));
+        for (Path root : roots) {
+            if (folder.startsWith(root)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String canonical(String path) {
+        try {
+            return new File(path).getCanonicalPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static HashMap<String, String> parameters(String query) {
+        HashMap<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+
+        try {
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals < 0) continue;
+                parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                               URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e); // every java platform has UTF-8
+        }
+
+        return parameters;
+    }
+
+    private static String error(String message) {
+        return "{\"error\": " + quote(message) + "}";
+    }
+
+    private static String quote(String value) {
+        return JsonWriter.quote(value);
+    }
+
+    /**
+     * Used for saving the facts of a project and the answers computed from them
+     */
+    private static class Project {
+        final Workspace workspace;
+
+        List<TypeDeclarationInfo> classes;
+        int changed;
+        long time;
+
+        // computed again only when a file changes
+        String summary;
+        String methodGraph;
+        String classGraph;
+        String matrix;
+
+        Project(Workspace workspace) {
+            this.workspace = workspace;
+        }
+
+        /**
+         * @param threads number of workers counting the coupling matrix
+         */
+        void refresh(int threads) {
+            long start = System.currentTimeMillis();
+            changed = workspace.refresh();
+
+            if (changed != 0 || classes == null) {
+                classes = workspace.classes();
+                List<MethodDeclarationInfo> methods = ListUtils.extract(classes, TypeDeclarationInfo::getMethods);
+
+                summary = summary(classes, methods);
+                CallGraphs callGraphs = Compute.callGraphs(workspace.getSymbols(), classes, methods, threads);
+                methodGraph = graph(callGraphs.getMethodGraph());
+                classGraph = graph(callGraphs.getClassGraph());
+                matrix = matrix(callGraphs.getClassCoupling());
+            }
+
+            time = System.currentTimeMillis() - start;
+        }
+
+        private static String summary(List<TypeDeclarationInfo> classes, List<MethodDeclarationInfo> methods) {
+            List<String> packages = new ArrayList<>();
+            for (String packageName : Compute.packages(classes)) {
+                packages.add(quote(packageName));
+            }
+
+            return "{\"classes\": " + classes.size() + ", " +
+                    "\"methods\": " + methods.size() + ", " +
+                    "\"lines\": " + ListUtils.sum(classes, TypeDeclarationInfo::numberOfLines) + ", " +
+                    "\"methodsPerClass\": " + ListUtils.average(classes, TypeDeclarationInfo::numberOfMethods) + ", " +
+                    "\"linesPerMethod\": " + ListUtils.average(methods, MethodDeclarationInfo::numberOfLines) + ", " +
+                    "\"fieldsPerClass\": " + ListUtils.average(classes, TypeDeclarationInfo::numberOfFields) + ", " +
+                    "\"packages\": [" + String.join(",", packages) + "]}";
+        }
+
+        private static String graph(Graph graph) {
+            StringWriter out = new StringWriter();
+            try {
+                Write.graph(out, graph);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // a StringWriter does not throw
+            }
+
+            return out.toString();
+        }
+
+        private static String matrix(Matrix matrix) {
+            List<String> names = new ArrayList<>();
+            for (String name : matrix.getNames()) {
+                names.add(quote(name));
+            }
+
+            // only the pairs that have invocations, each one once as the coupling is symmetric
+            List<String> pairs = new ArrayList<>(matrix.numberOfCells());
+            int[] columns = matrix.getColumns();
+            int[] values = matrix.getValues();
+            for (int row = 0; row < matrix.size(); row++) {
+                for (int cell = matrix.rowFrom(row); cell < matrix.rowTo(row); cell++) {
+                    pairs.add("[" + row + "," + columns[cell] + "," + values[cell] + "]");
+                }
+            }
+
+            return "{\"names\": [" + String.join(",", names) + "], " +
+                    "\"total\": " + matrix.getTotal() + ", " +
+                    "\"pairs\": [" + String.join(",", pairs) + "]}";
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.stardisblue.ast.shard;
+
+import com.stardisblue.ast.Compute;
+import com.stardisblue.ast.Parser;
+import com.stardisblue.ast.cache.FactCodec;
+import com.stardisblue.ast.info.MethodDeclarationInfo;
+import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.resolver.InvocationResolver;
+import com.stardisblue.ast.structure.CallGraphs;
+import com.stardisblue.ast.structure.Graph;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.logging.Logger;
+import com.stardisblue.utils.ListUtils;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the files in several worker processes, so that the ASTs and the invocations of a big project are never held
+ * by a single JVM.
+ * <p>
+ * The files are split in contiguous shards, each worker parses its shard. With {@link #reduce(List, SymbolTable)}
+ * the workers reduce their shard to partial call graphs and to the declarations of their classes, without the
+ * invocations. The partial graphs are merged in the order of the shards, which numbers the nodes as a single process
+ * run does, and the coupling matrix is counted on the merged class graph : the graphs, the matrix and the dendrogram
+ * are the ones of a single process run. Only the report can be written from them.
+ * <p>
+ * The queries, the fact cache and the fast mode need the invocations : with {@link #parse(List, SymbolTable)} the
+ * workers write the facts of each file, they are read back in the order of the files. In fast mode, invocations are
+ * resolved once everything is merged since they can target a class of another shard. Only the memory of the ASTs and
+ * of the bindings is spread over the workers then.
+ */
+public class ShardRunner {
+
+    private final List<String> classpaths;
+    private final String sourcePath;
+    private final int shards;
+    private final int threads;
+    private final boolean fast;
+
+    /**
+     * @param classpaths classpath entries used to resolve bindings
+     * @param sourcePath root of the analysed sources
+     * @param shards     number of worker processes
+     * @param threads    number of threads used by all the workers
+     * @param fast       if the files are parsed without bindings
+     */
+    public ShardRunner(List<String> classpaths, String sourcePath, int shards, int threads, boolean fast) {
+        this.classpaths = classpaths;
+        this.sourcePath = sourcePath;
+        this.shards = Math.max(1, shards);
+        this.threads = Math.max(1, threads / this.shards);
+        this.fast = fast;
+    }
+
+    /**
+     * Parses the files on the workers and merges their facts, all of them are read back in this process
+     *
+     * @param javaFiles files to parse
+     * @param symbols   table the names of the facts are interned in
+     * @return foreach file (same index), the classes it declares
+     * @throws IOException if a worker cannot be started, fails, or its facts cannot be read
+     */
+    public List<List<TypeDeclarationInfo>> parse(List<File> javaFiles, SymbolTable symbols) throws IOException {
+        List<List<TypeDeclarationInfo>> parsed = new ArrayList<>(javaFiles.size());
+        run(javaFiles, false, in -> parsed.addAll(readFacts(in, symbols)));
+
+        return parsed;
+    }
+
+    /**
+     * Parses the files on the workers, each one reduces its shard to partial call graphs that are merged here
+     *
+     * @param javaFiles files to parse
+     * @param symbols   table the names of the classes and methods are interned in
+     * @return the classes, whose methods invoke nothing, and the merged graphs and matrix
+     * @throws IOException if a worker cannot be started, fails, or its output cannot be read
+     */
+    public Reduction reduce(List<File> javaFiles, SymbolTable symbols) throws IOException {
+        if (fast) {
+            throw new IllegalStateException("In fast mode the invocations are resolved after the merge, " +
+                                                    "the shards cannot be reduced");
+        }
+
+        List<TypeDeclarationInfo> classes = new ArrayList<>();
+        // method, class, qualified class and package graphs
+        Graph.Builder[] graphs = new Graph.Builder[4];
+        for (int i = 0; i < graphs.length; i++) {
+            graphs[i] = new Graph.Builder(symbols);
+        }
+
+        run(javaFiles, true, in -> {
+            for (List<TypeDeclarationInfo> file : readFacts(in, symbols)) {
+                classes.addAll(file);
+            }
+            for (Graph.Builder graph : graphs) {
+                readGraph(in, symbols, graph);
+            }
+        });
+
+        Graph qualifiedClassGraph = graphs[2].build();
+        return new Reduction(classes, new CallGraphs(graphs[0].build(), graphs[1].build(), qualifiedClassGraph,
+                                                     graphs[3].build(),
+                                                     Compute.classCoupling(symbols, classes, qualifiedClassGraph)));
+    }
+
+    /**
+     * Starts a worker per shard and reads their outputs in the order of the shards
+     *
+     * @param javaFiles files to parse
+     * @param reduce    if the workers write partial graphs instead of the facts
+     * @param reader    reads the output of a worker
+     * @throws IOException if a worker cannot be started, fails, or its output cannot be read
+     */
+    private void run(List<File> javaFiles, boolean reduce, OutputReader reader) throws IOException {
+        File folder = Files.createTempDirectory("shards").toFile();
+        List<Process> workers = new ArrayList<>();
+        try {
+            int size = (javaFiles.size() + shards - 1) / shards;
+            List<File> outputs = new ArrayList<>();
+
+            for (int from = 0; from < javaFiles.size(); from += size) {
+                int shard = workers.size();
+                File input = new File(folder, shard + ".shard");
+                File output = new File(folder, shard + ".facts");
+
+                writeShard(input, javaFiles.subList(from, Math.min(from + size, javaFiles.size())), reduce);
+                workers.add(start(input, output));
+                outputs.add(output);
+            }
+
+            for (int shard = 0; shard < workers.size(); shard++) {
+                int exit = waitFor(workers.get(shard));
+                if (exit != 0) {
+                    throw new IOException("Shard " + shard + " failed with exit code " + exit);
+                }
+
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(outputs.get(shard))))) {
+                    reader.read(in);
+                }
+            }
+        } finally {
+            // when a shard fails, the others are not needed anymore
+            for (Process worker : workers) {
+                worker.destroy();
+            }
+
+            File[] files = folder.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            folder.delete();
+        }
+    }
+
+    /**
+     * Starts a worker using the same java and classpath as the current process
+     *
+     * @param input  shard description
+     * @param output where the worker writes the facts
+     * @return the worker process
+     * @throws IOException if the process cannot be started
+     */
+    private Process start(File input, File output) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+
+        // memory settings are kept, the others (agents, debug ports) could conflict between processes
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-Xm") || argument.startsWith("-Xss")) {
+                command.add(argument);
+            }
+        }
+
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardRunner.class.getName());
+        command.add(input.getAbsolutePath());
+        command.add(output.getAbsolutePath());
+
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private static int waitFor(Process worker) throws IOException {
+        try {
+            return worker.waitFor();
+        } catch (InterruptedException e) {
+            worker.destroy();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a shard");
+        }
+    }
+
+    /**
+     * Writes what a worker needs to parse its shard
+     *
+     * @param input     shard description
+     * @param javaFiles files of the shard
+     * @param reduce    if the worker writes partial graphs instead of the facts
+     * @throws IOException if the file cannot be written
+     */
+    private void writeShard(File input, List<File> javaFiles, boolean reduce) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(input)))) {
+            out.writeUTF(sourcePath);
+            out.writeInt(threads);
+            out.writeBoolean(fast);
+            out.writeBoolean(reduce);
+            out.writeBoolean(Logger.enabled());
+
+            out.writeInt(classpaths.size());
+            for (String classpath : classpaths) {
+                out.writeUTF(classpath);
+            }
+
+            out.writeInt(javaFiles.size());
+            for (File javaFile : javaFiles) {
+                out.writeUTF(javaFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private static List<List<TypeDeclarationInfo>> readFacts(DataInput in, SymbolTable symbols) throws IOException {
+        int size = in.readInt();
+        List<List<TypeDeclarationInfo>> parsed = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            parsed.add(FactCodec.read(in, symbols));
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Writes the nodes of a partial graph by name, in order, then the links of each node
+     */
+    private static void writeGraph(DataOutput out, Graph graph) throws IOException {
+        out.writeInt(graph.size());
+        for (int node = 0; node < graph.size(); node++) {
+            out.writeUTF(graph.getName(node));
+            out.writeBoolean(graph.isOwn(node));
+        }
+
+        for (int node = 0; node < graph.size(); node++) {
+            out.writeInt(graph.linksTo(node) - graph.linksFrom(node));
+            for (int link = graph.linksFrom(node); link < graph.linksTo(node); link++) {
+                out.writeInt(graph.getTarget(link));
+                out.writeInt(graph.getWeight(link));
+            }
+        }
+    }
+
+    /**
+     * Adds a partial graph written by {@link #writeGraph(DataOutput, Graph)} to the merged one. The nodes are added in
+     * their order in the shard, so the nodes of the merged graph are numbered as if all the shards were one
+     */
+    private static void readGraph(DataInput in, SymbolTable symbols, Graph.Builder graph) throws IOException {
+        int[] nodes = new int[in.readInt()];
+        for (int node = 0; node < nodes.length; node++) {
+            nodes[node] = graph.node(symbols.intern(in.readUTF()));
+            if (in.readBoolean()) {
+                graph.belongs(nodes[node]);
+            }
+        }
+
+        for (int node : nodes) {
+            for (int links = in.readInt(); links > 0; links--) {
+                graph.link(node, nodes[in.readInt()], in.readInt());
+            }
+        }
+    }
+
+    /**
+     * Worker entry point, parses the files of a shard and writes their facts
+     *
+     * @param args shard description and where to write the facts
+     */
+    public static void main(String... args) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])))) {
+            String sourcePath = in.readUTF();
+            int threads = in.readInt();
+            boolean fast = in.readBoolean();
+            boolean reduce = in.readBoolean();
+            if (in.readBoolean()) {
+                Logger.enable();
+            }
+
+            List<String> classpaths = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                classpaths.add(in.readUTF());
+            }
+
+            List<File> javaFiles = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                javaFiles.add(new File(in.readUTF()));
+            }
+
+            // the resolver is only there to keep the unresolved invocations, they are resolved after the merge
+            Parser parser = new Parser(classpaths, sourcePath, threads, null,
+                                       fast ? new InvocationResolver(null) : null);
+            List<List<TypeDeclarationInfo>> parsed = parser.parseEach(javaFiles);
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(args[1])))) {
+                out.writeInt(parsed.size());
+                for (List<TypeDeclarationInfo> classes : parsed) {
+                    if (reduce) {
+                        FactCodec.writeDeclarations(out, classes);
+                    } else {
+                        FactCodec.write(out, classes);
+                    }
+                }
+
+                if (reduce) {
+                    // the coupling is counted after the merge, the classes of the other shards are not known here
+                    List<TypeDeclarationInfo> classes = ListUtils.extract(parsed, l -> l);
+                    List<MethodDeclarationInfo> methods = ListUtils.extract(classes, TypeDeclarationInfo::getMethods);
+                    CallGraphs callGraphs = Compute.callGraphs(parser.getSymbols(), classes, methods, 1);
+                    writeGraph(out, callGraphs.getMethodGraph());
+                    writeGraph(out, callGraphs.getClassGraph());
+                    writeGraph(out, callGraphs.getQualifiedClassGraph());
+                    writeGraph(out, callGraphs.getPackageGraph());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads the output of a worker
+     */
+    private interface OutputReader {
+        void read(DataInput in) throws IOException;
+    }
+
+    /**
+     * The classes of a project and its call graphs, merged from the shards
+     */
+    public static class Reduction {
+        private final List<TypeDeclarationInfo> classes;
+        private final CallGraphs callGraphs;
+
+        Reduction(List<TypeDeclarationInfo> classes, CallGraphs callGraphs) {
+            this.classes = classes;
+            this.callGraphs = callGraphs;
+        }
+
+        /**
+         * @return the classes in the order of the files, their methods do not keep their invocations
+         */
+        public List<TypeDeclarationInfo> getClasses() {
+            return classes;
+        }
+
+        public CallGraphs getCallGraphs() {
+            return callGraphs;
+        }
+    }
+}
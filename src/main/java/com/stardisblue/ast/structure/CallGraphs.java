@@ -0,0 +1,47 @@
+package com.stardisblue.ast.structure;
+
+/**
+ * The call graphs and the coupling matrix of a project, built together in one pass over the invocations
+ */
+public class CallGraphs {
+    private final Graph methodGraph;
+    private final Graph classGraph;
+    /**
+     * the class graph keyed by qualified names, two classes with the same simple name are two nodes
+     */
+    private final Graph qualifiedClassGraph;
+    private final Graph packageGraph;
+    private final Matrix classCoupling;
+
+    public CallGraphs(Graph methodGraph, Graph classGraph, Graph qualifiedClassGraph, Graph packageGraph,
+                      Matrix classCoupling) {
+        this.methodGraph = methodGraph;
+        this.classGraph = classGraph;
+        this.qualifiedClassGraph = qualifiedClassGraph;
+        this.packageGraph = packageGraph;
+        this.classCoupling = classCoupling;
+    }
+
+    public Graph getMethodGraph() {
+        return methodGraph;
+    }
+
+    public Graph getClassGraph() {
+        return classGraph;
+    }
+
+    /**
+     * @return the class graph the dependency cycles are looked for in
+     */
+    public Graph getQualifiedClassGraph() {
+        return qualifiedClassGraph;
+    }
+
+    public Graph getPackageGraph() {
+        return packageGraph;
+    }
+
+    public Matrix getClassCoupling() {
+        return classCoupling;
+    }
+}
@@ -16,7 +16,7 @@ public class Cluster<T> {
         similarity = -1;
     }
 
-    Cluster(int id, Cluster<T> first, Cluster<T> last, int similarity) {
+    public Cluster(int id, Cluster<T> first, Cluster<T> last, int similarity) {
         this.id = id;
         this.first = first;
         this.last = last;
@@ -1,177 +1,293 @@
 package com.stardisblue.ast.structure;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
+/**
+ * Agglomerative clustering over the coupling matrix, each merge fuses the two closest clusters.
+ * <p>
+ * Clusters are identified by their name : the leaves are <tt>0</tt> to <tt>n - 1</tt> and the k-th merge creates
+ * <tt>n + k</tt>. Nothing is copied on a merge, the two clusters leave the active set and the fused one gets the sum
+ * of their similarities. Only the non zero similarities are stored, in a list per cluster, and every pair in a max
+ * heap. A pair of the heap whose clusters have been merged since is skipped when it comes out, or dropped when the
+ * heap is full, the other pairs are up to date as the similarity of a pair never changes while both clusters are
+ * active. A merge costs <tt>O(k log p)</tt>
+ * for <tt>k</tt> neighbours and <tt>p</tt> pairs, <tt>O(n&sup2; log n)</tt> at worst for the whole tree.
+ * <p>
+ * The closest pair is the one with the highest similarity, then the smallest names. Once no similarity is left, the
+ * two clusters with the smallest names are fused.
+ */
 public class ClusterManager<T> {
 
-    private ArrayList<Cluster<T>> clusters;
+    private final Cluster<T>[] clusters;
+    private final BitSet active;
+    private int size;
+    private int nextName;
 
-    private HashMap<Integer, Integer> clusterIds;
-
-    private int totalCount;
-
-    private int[][] dynamicMatrix;
+    /**
+     * clusters linked to each cluster and the similarity, <tt>neighbours[c][0]</tt> to
+     * <tt>neighbours[c][neighbourCounts[c] - 1]</tt>, including merged clusters
+     */
+    private final int[][] neighbours;
+    private final int[][] similarities;
+    private final int[] neighbourCounts;
 
-    public ClusterManager(List<Cluster<T>> clusters, int[][] adjacentMatrix, int sumValue) {
-        this.clusters = new ArrayList<>(clusters.size());
-        this.clusterIds = new HashMap<>(clusters.size());
+    /**
+     * max heap of the pairs, packed as <tt>first &lt;&lt; 32 | last</tt> with <tt>first &lt; last</tt>
+     */
+    private long[] heapPairs;
+    private int[] heapSimilarities;
+    private int heapSize = 0;
 
-        totalCount = sumValue;
+    /**
+     * sum of the similarities of a merge, for each cluster reached, zero everywhere else
+     */
+    private final int[] fusedSimilarities;
+    private final int[] reached;
 
-        // copy of clusters
-        for (Cluster<T> cluster : clusters) {
-            this.clusters.add(cluster);
-            this.clusterIds.put(cluster.getName(), clusterIds.size());
+    /**
+     * @param clusters the classes, in the order of the rows of the matrix
+     * @param matrix   the coupling matrix
+     */
+    @SuppressWarnings("unchecked")
+    public ClusterManager(List<Cluster<T>> clusters, Matrix matrix) {
+        int size = clusters.size();
+        int capacity = Math.max(2 * size - 1, 0);
+
+        this.clusters = new Cluster[capacity];
+        for (int i = 0; i < size; i++) {
+            this.clusters[i] = clusters.get(i);
         }
-
-        // copy of matrix
-        this.dynamicMatrix = new int[adjacentMatrix.length][adjacentMatrix.length];
-        for (int i = 0; i < adjacentMatrix.length; i++) {
-            System.arraycopy(adjacentMatrix[i], 0, dynamicMatrix[i], 0, adjacentMatrix.length);
+        active = new BitSet(capacity);
+        active.set(0, size);
+        this.size = size;
+        nextName = size;
+
+        neighbours = new int[capacity][];
+        similarities = new int[capacity][];
+        neighbourCounts = new int[capacity];
+        fusedSimilarities = new int[capacity];
+        reached = new int[capacity];
+
+        int[] columns = matrix.getColumns();
+        int[] values = matrix.getValues();
+        heapPairs = new long[Math.max(matrix.numberOfCells(), 16)];
+        heapSimilarities = new int[heapPairs.length];
+        for (int i = 0; i < size; i++) {
+            for (int cell = matrix.rowFrom(i); cell < matrix.rowTo(i); cell++) {
+                int j = columns[cell];
+                if (i == j) continue; // the link to self is not a similarity
+
+                addNeighbour(i, j, values[cell]);
+                addNeighbour(j, i, values[cell]);
+                push(i, j, values[cell]);
+            }
         }
     }
 
     /**
-     * Sets up cluster similarity only if the clusters did not have similarity values
-     *
-     * @param firstId first clusterId
-     * @param lastId  second clusterId
+     * @return the number of clusters left
      */
-    public void initSimilarity(int firstId, int lastId) {
-        // if one of these cluster is not present in my matrix
-        if (firstId == lastId) {
-            return;
-        }
-        // the number of links between them
-        int similarityValue = dynamicMatrix[firstId][lastId] + dynamicMatrix[lastId][firstId];
-
-        clusters.get(firstId).initSimilarity(similarityValue);
-        clusters.get(lastId).initSimilarity(similarityValue);
+    public int size() {
+        return size;
     }
 
     /**
-     * Updates the clusterTree by fusing the corresponding cluster of firstId and lastId
-     * <p>
-     * updates the clusters and the matrix
+     * Fuses the two closest clusters, their similarity is set if it is the first time they are part of a merge
      *
-     * @param firstId a cluster to fuse
-     * @param lastId  a cluster to fuse
+     * @return the fused cluster
      */
-    public void updateMatrix(int firstId, int lastId) {
-        // if one of these cluster is not present in my matrix
-        if (firstId == lastId) {
-            return;
+    public Cluster<T> merge() {
+        if (size < 2) {
+            throw new IllegalStateException("There is only one cluster left");
         }
 
-        // we get that for the dynamic matrix before the update
-        //int firstId = clusterIds.get(toFuseFirst.getName());
-        //int lastId = clusterIds.get(toFuseLast.getName());
+        int first = -1;
+        int last = -1;
+        int similarity = 0;
+        while (heapSize > 0 && first == -1) {
+            long pair = heapPairs[0];
+            int pairSimilarity = heapSimilarities[0];
+            pop();
+
+            if (active.get((int) (pair >>> 32)) && active.get((int) pair)) {
+                first = (int) (pair >>> 32);
+                last = (int) pair;
+                similarity = pairSimilarity;
+            }
+        }
+        if (first == -1) {
+            first = active.nextSetBit(0);
+            last = active.nextSetBit(first + 1);
+        }
 
-        Cluster<T> toFuseFirst = clusters.get(firstId);
-        Cluster<T> toFuseLast = clusters.get(lastId);
+        clusters[first].initSimilarity(similarity);
+        clusters[last].initSimilarity(similarity);
+
+        int fused = nextName++;
+        clusters[fused] = new Cluster<>(fused, clusters[first], clusters[last], similarity);
+        active.clear(first);
+        active.clear(last);
+        active.set(fused);
+        size--;
+
+        // similarity of the fused cluster with the clusters linked to one of the two
+        int reachedCount = accumulate(first, 0);
+        reachedCount = accumulate(last, reachedCount);
+
+        neighbours[fused] = new int[Math.max(reachedCount, 4)];
+        similarities[fused] = new int[neighbours[fused].length];
+        for (int r = 0; r < reachedCount; r++) {
+            int cluster = reached[r];
+            int sum = fusedSimilarities[cluster];
+            fusedSimilarities[cluster] = 0;
+
+            addNeighbour(fused, cluster, sum);
+            addNeighbour(cluster, fused, sum);
+            push(cluster, fused, sum); // the fused cluster has the biggest name
+        }
 
-        // there is one less cluster
-        int fusedCapacity = clusters.size() - 1;
+        neighbours[first] = neighbours[last] = null;
+        similarities[first] = similarities[last] = null;
 
+        return clusters[fused];
+    }
 
-        //biggest available name is always last
-        int fusedName = clusters.get(fusedCapacity).getName() + 1;
+    /**
+     * @return the clusters left, by name
+     */
+    public ArrayList<Cluster<T>> getClusters() {
+        ArrayList<Cluster<T>> list = new ArrayList<>(size);
+        for (int c = active.nextSetBit(0); c >= 0; c = active.nextSetBit(c + 1)) {
+            list.add(clusters[c]);
+        }
 
-        // merging values of both
-        // removing from clusters and adding fused to clusters
-        ArrayList<Cluster<T>> replacedClusters = new ArrayList<>(fusedCapacity);
-        HashMap<Integer, Integer> replacedClusterIds = new HashMap<>(fusedCapacity);
+        return list;
+    }
 
-        for (Cluster<T> cluster : clusters) {
-            // we ignore these ones, we recopy the rest
-            if (cluster.getName() == toFuseFirst.getName() || cluster.getName() == toFuseLast.getName()) {
-                continue;
+    /**
+     * Adds the similarities of a merged cluster with the active clusters to {@link #fusedSimilarities}
+     *
+     * @param cluster      the merged cluster
+     * @param reachedCount number of clusters already in {@link #reached}
+     * @return the new number of clusters in {@link #reached}
+     */
+    private int accumulate(int cluster, int reachedCount) {
+        int[] clusterNeighbours = neighbours[cluster];
+        int[] clusterSimilarities = similarities[cluster];
+        for (int n = 0; n < neighbourCounts[cluster]; n++) {
+            int neighbour = clusterNeighbours[n];
+            if (!active.get(neighbour)) continue;
+
+            if (fusedSimilarities[neighbour] == 0) {
+                reached[reachedCount++] = neighbour;
             }
-
-            replacedClusters.add(cluster);
-            replacedClusterIds.put(cluster.getName(), replacedClusterIds.size());
+            fusedSimilarities[neighbour] += clusterSimilarities[n];
         }
 
-        // the fused cluster
-        int similarity = dynamicMatrix[firstId][lastId] + dynamicMatrix[lastId][firstId];
-        Cluster<T> fused = new Cluster<>(fusedName, toFuseFirst, toFuseLast, similarity);
-
-        // we add it as last
-        int fusedId = replacedClusterIds.size();
-        replacedClusters.add(fused);
-        replacedClusterIds.put(fusedName, fusedId);
-
-        clusters = replacedClusters;
-        clusterIds = replacedClusterIds;
+        return reachedCount;
+    }
 
-        int iterCorrection = 0; // because reindexing and also because they have not the same size
-        int[][] updatedDynamicMatrix = new int[fusedCapacity][fusedCapacity]; // one size less matrix
-        for (int i = 0; i < dynamicMatrix.length; i++) {
-            if (i == lastId || i == firstId) { // copy while ignoring the removed clusters
-                ++iterCorrection;
-                continue;
+    private void addNeighbour(int cluster, int neighbour, int similarity) {
+        int count = neighbourCounts[cluster];
+        if (neighbours[cluster] == null) {
+            neighbours[cluster] = new int[4];
+            similarities[cluster] = new int[4];
+        } else if (count == neighbours[cluster].length) {
+            // the merged clusters are dropped before growing
+            int kept = 0;
+            for (int n = 0; n < count; n++) {
+                if (active.get(neighbours[cluster][n])) {
+                    neighbours[cluster][kept] = neighbours[cluster][n];
+                    similarities[cluster][kept++] = similarities[cluster][n];
+                }
+            }
+            count = kept;
+            if (2 * count > neighbours[cluster].length) {
+                neighbours[cluster] = Arrays.copyOf(neighbours[cluster], neighbours[cluster].length * 2);
+                similarities[cluster] = Arrays.copyOf(similarities[cluster], similarities[cluster].length * 2);
             }
-            // setting up the values for the merged cluster
-            updatedDynamicMatrix[fusedId][i - iterCorrection] = dynamicMatrix[firstId][i] + dynamicMatrix[lastId][i];
-            updatedDynamicMatrix[i - iterCorrection][fusedId] = dynamicMatrix[i][firstId] + dynamicMatrix[i][lastId];
         }
 
-        // the sum of first with first and last with last and the value between the two of them
-        // we dont care about the linktoself value
-        //updatedDynamicMatrix[fusedId][fusedId] = dynamicMatrix[firstId][firstId] + dynamicMatrix[lastId][lastId] +
-        //        dynamicMatrix[firstId][lastId] + dynamicMatrix[lastId][firstId];
-
-        // now we need to remove the ancient link
-        int rowCorrection = 0;
-        for (int i = 0; i < dynamicMatrix.length; i++) {
-            if (i == lastId || i == firstId) { // we ignore this row
-                ++rowCorrection; // it does not exist in the new array
-                continue;
-            }
-            int columnCorrection = 0;
-            for (int j = 0; j < dynamicMatrix.length; j++) {
-                if (j == lastId || j == firstId) {// we ignore this cell
-                    ++columnCorrection; // it does not exist in the new array
-                    continue;
-                }
+        neighbours[cluster][count] = neighbour;
+        similarities[cluster][count] = similarity;
+        neighbourCounts[cluster] = count + 1;
+    }
 
-                updatedDynamicMatrix[i - rowCorrection][j - columnCorrection] = dynamicMatrix[i][j];
+    /**
+     * @return if the pair at <tt>a</tt> in the heap comes before the one at <tt>b</tt>
+     */
+    private boolean before(int a, int b) {
+        return heapSimilarities[a] > heapSimilarities[b] ||
+                (heapSimilarities[a] == heapSimilarities[b] && heapPairs[a] < heapPairs[b]);
+    }
+
+    private void push(int first, int last, int similarity) {
+        if (heapSize == heapPairs.length) {
+            compact();
+            if (2 * heapSize > heapPairs.length) {
+                heapPairs = Arrays.copyOf(heapPairs, heapPairs.length * 2);
+                heapSimilarities = Arrays.copyOf(heapSimilarities, heapSimilarities.length * 2);
             }
         }
 
-        // the two loop can be merged into one, but I will leave it like that for clarity purpose
-
-        dynamicMatrix = updatedDynamicMatrix;
+        int i = heapSize++;
+        heapPairs[i] = (long) first << 32 | last;
+        heapSimilarities[i] = similarity;
+        while (i > 0 && before(i, (i - 1) / 2)) {
+            swap(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
     }
 
     /**
-     * Returns a pair of ClusterId with the highest relation
-     *
-     * @return an array of lenght 2 containing the pair of clusterIds
+     * Drops the pairs of merged clusters from the heap and rebuilds it
      */
-    public int[] getClosestPairId() {
-        int[] pair = new int[]{-1, -1};
-        int max = -1;
-        for (int i = 0; i < dynamicMatrix.length; i++) {
-            for (int j = 0; j < dynamicMatrix.length; j++) {
-                if (i == j) {
-                    continue;
-                }
-
-                if (dynamicMatrix[i][j] > max) {
-                    max = dynamicMatrix[i][j] + dynamicMatrix[j][i];
-                    pair[0] = i;
-                    pair[1] = j;
-                }
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < heapSize; i++) {
+            if (active.get((int) (heapPairs[i] >>> 32)) && active.get((int) heapPairs[i])) {
+                heapPairs[kept] = heapPairs[i];
+                heapSimilarities[kept++] = heapSimilarities[i];
             }
         }
+        heapSize = kept;
 
-        return pair;
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
     }
 
-    public ArrayList<Cluster<T>> getClusters() {
-        return clusters;
+    private void pop() {
+        heapSize--;
+        heapPairs[0] = heapPairs[heapSize];
+        heapSimilarities[0] = heapSimilarities[heapSize];
+        siftDown(0);
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && before(child + 1, child)) {
+                child++;
+            }
+            if (!before(child, i)) break;
+
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long pair = heapPairs[a];
+        heapPairs[a] = heapPairs[b];
+        heapPairs[b] = pair;
+
+        int similarity = heapSimilarities[a];
+        heapSimilarities[a] = heapSimilarities[b];
+        heapSimilarities[b] = similarity;
     }
 }
@@ -0,0 +1,371 @@
+package com.stardisblue.ast.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Strongly connected components of a call graph, and the graph of the links between them.
+ * <p>
+ * The components are found with Tarjan's algorithm, the recursion is replaced by an explicit stack so that long
+ * chains of calls cannot overflow the java stack. The graph is first split into its weakly connected parts, which
+ * share no link, and these are searched in parallel.
+ * <p>
+ * Components are numbered so that a component only links to components with a smaller id (the condensation is a
+ * DAG, listed from its sinks).
+ */
+public class Components {
+    private final Graph graph;
+
+    /**
+     * component of each node
+     */
+    private final int[] component;
+    /**
+     * the nodes of component <tt>c</tt> are <tt>members[memberOffsets[c]]</tt> to
+     * <tt>members[memberOffsets[c + 1] - 1]</tt>
+     */
+    private final int[] memberOffsets;
+    private final int[] members;
+
+    /**
+     * condensation, the components linked from component <tt>c</tt> are <tt>targets[offsets[c]]</tt> to
+     * <tt>targets[offsets[c + 1] - 1]</tt>, sorted and without duplicates
+     */
+    private final int[] offsets;
+    private final int[] targets;
+
+    /**
+     * @param graph   the graph
+     * @param threads number of threads the weakly connected parts are split between
+     */
+    public Components(Graph graph, int threads) {
+        this.graph = graph;
+        int size = graph.size();
+
+        int[][] parts = weaklyConnectedParts(graph);
+        int[][][] found = new int[parts.length][][];
+
+        // the parts share no node, the arrays of the search are shared as each thread writes its own nodes
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+
+        int workers = Math.min(threads, parts.length);
+        if (workers <= 1) {
+            for (int p = 0; p < parts.length; p++) {
+                found[p] = tarjan(graph, parts[p], index, lowLink, onStack);
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            List<Future<?>> futures = new ArrayList<>(workers);
+
+            // the biggest parts come first, they are striped over the workers
+            for (int worker = 0; worker < workers; worker++) {
+                int offset = worker;
+                futures.add(executor.submit(() -> {
+                    for (int p = offset; p < parts.length; p += workers) {
+                        found[p] = tarjan(graph, parts[p], index, lowLink, onStack);
+                    }
+                }));
+            }
+
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Component search has been interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Component search failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // numbering the components, parts after parts
+        int count = 0;
+        for (int[][] partComponents : found) {
+            count += partComponents.length;
+        }
+
+        component = new int[size];
+        memberOffsets = new int[count + 1];
+        members = new int[size];
+        int c = 0;
+        int m = 0;
+        for (int[][] partComponents : found) {
+            for (int[] nodes : partComponents) {
+                for (int node : nodes) {
+                    component[node] = c;
+                    members[m++] = node;
+                }
+                memberOffsets[++c] = m;
+            }
+        }
+
+        // condensation, links are packed as source << 32 | target like in Graph.Builder
+        int[] graphTargets = graph.getTargets();
+        long[] links = new long[graphTargets.length];
+        int numberOfLinks = 0;
+        for (int node = 0; node < size; node++) {
+            for (int link = graph.linksFrom(node); link < graph.linksTo(node); link++) {
+                int from = component[node];
+                int to = component[graphTargets[link]];
+                if (from != to) {
+                    links[numberOfLinks++] = (long) from << 32 | to;
+                }
+            }
+        }
+        Arrays.sort(links, 0, numberOfLinks);
+
+        offsets = new int[count + 1];
+        int[] condensed = new int[numberOfLinks];
+        int distinct = 0;
+        for (int i = 0; i < numberOfLinks; i++) {
+            if (i > 0 && links[i] == links[i - 1]) continue;
+
+            offsets[(int) (links[i] >>> 32) + 1]++;
+            condensed[distinct++] = (int) links[i];
+        }
+        for (int k = 0; k < count; k++) {
+            offsets[k + 1] += offsets[k];
+        }
+        targets = Arrays.copyOf(condensed, distinct);
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of components
+     */
+    public int size() {
+        return memberOffsets.length - 1;
+    }
+
+    /**
+     * @param node id of a node of the graph
+     * @return the id of its component
+     */
+    public int getComponent(int node) {
+        return component[node];
+    }
+
+    /**
+     * @param c id of the component
+     * @return the ids of its nodes
+     */
+    public int[] getMembers(int c) {
+        return Arrays.copyOfRange(members, memberOffsets[c], memberOffsets[c + 1]);
+    }
+
+    /**
+     * @param c id of the component
+     * @return its number of nodes
+     */
+    public int getSize(int c) {
+        return memberOffsets[c + 1] - memberOffsets[c];
+    }
+
+    /**
+     * @return the components of more than one node, the biggest first
+     */
+    public List<Integer> cycles() {
+        List<Integer> cycles = new ArrayList<>();
+        for (int c = 0; c < size(); c++) {
+            if (getSize(c) > 1) {
+                cycles.add(c);
+            }
+        }
+        cycles.sort((c1, c2) -> getSize(c2) - getSize(c1));
+
+        return cycles;
+    }
+
+    /**
+     * @param c id of the component
+     * @return the names of its nodes
+     */
+    public List<String> getNames(int c) {
+        List<String> names = new ArrayList<>(getSize(c));
+        for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+            names.add(graph.getName(members[m]));
+        }
+
+        return names;
+    }
+
+    /**
+     * @return the number of links of the condensation
+     */
+    public int numberOfLinks() {
+        return targets.length;
+    }
+
+    /**
+     * @param c id of the component
+     * @return the index in {@link #getTargets()} of the first component it links to
+     */
+    public int linksFrom(int c) {
+        return offsets[c];
+    }
+
+    /**
+     * @param c id of the component
+     * @return the index in {@link #getTargets()} after the last component it links to
+     */
+    public int linksTo(int c) {
+        return offsets[c + 1];
+    }
+
+    /**
+     * @return the links of the condensation, see {@link #linksFrom(int)} and {@link #linksTo(int)}
+     */
+    public int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * Splits the nodes by union-find, ignoring the direction of the links
+     *
+     * @param graph the graph
+     * @return the nodes of each part, the biggest part first
+     */
+    private static int[][] weaklyConnectedParts(Graph graph) {
+        int size = graph.size();
+        int[] parent = new int[size];
+        for (int node = 0; node < size; node++) {
+            parent[node] = node;
+        }
+
+        int[] graphTargets = graph.getTargets();
+        for (int node = 0; node < size; node++) {
+            for (int link = graph.linksFrom(node); link < graph.linksTo(node); link++) {
+                int root = find(parent, node);
+                int other = find(parent, graphTargets[link]);
+                if (root != other) {
+                    parent[Math.max(root, other)] = Math.min(root, other);
+                }
+            }
+        }
+
+        // counting sort of the nodes by root
+        int[] partSize = new int[size];
+        int numberOfParts = 0;
+        for (int node = 0; node < size; node++) {
+            int root = find(parent, node);
+            if (partSize[root]++ == 0) {
+                numberOfParts++;
+            }
+        }
+
+        int[][] parts = new int[numberOfParts][];
+        int[] partOf = new int[size];
+        int[] filled = new int[numberOfParts];
+        int p = 0;
+        for (int node = 0; node < size; node++) {
+            if (parent[node] == node) { // roots are the smallest node of their part
+                partOf[node] = p;
+                parts[p++] = new int[partSize[node]];
+            }
+        }
+        for (int node = 0; node < size; node++) {
+            int part = partOf[find(parent, node)];
+            parts[part][filled[part]++] = node;
+        }
+
+        Arrays.sort(parts, (p1, p2) -> p2.length - p1.length);
+
+        return parts;
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]]; // path halving
+            node = parent[node];
+        }
+
+        return node;
+    }
+
+    /**
+     * Iterative Tarjan over the nodes of one part, every link of these nodes stays in the part
+     *
+     * @param graph   the graph
+     * @param nodes   the nodes of the part
+     * @param index   order of discovery of each node, -1 if not discovered
+     * @param lowLink smallest index reachable from each node
+     * @param onStack if the node is on the stack of the current components
+     * @return the nodes of each component, in reverse topological order
+     */
+    private static int[][] tarjan(Graph graph, int[] nodes, int[] index, int[] lowLink, boolean[] onStack) {
+        int[] graphTargets = graph.getTargets();
+        List<int[]> found = new ArrayList<>();
+
+        int[] stack = new int[nodes.length];
+        int stackSize = 0;
+        // explicit call stack : the node and the next link to follow
+        int[] callNode = new int[nodes.length];
+        int[] callLink = new int[nodes.length];
+        int depth;
+        int counter = 0;
+
+        for (int root : nodes) {
+            if (index[root] != -1) continue;
+
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            callNode[0] = root;
+            callLink[0] = graph.linksFrom(root);
+            depth = 1;
+
+            while (depth > 0) {
+                int node = callNode[depth - 1];
+
+                if (callLink[depth - 1] < graph.linksTo(node)) {
+                    int next = graphTargets[callLink[depth - 1]++];
+
+                    if (index[next] == -1) { // "recursive call"
+                        index[next] = lowLink[next] = counter++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        callNode[depth] = next;
+                        callLink[depth] = graph.linksFrom(next);
+                        depth++;
+                    } else if (onStack[next]) {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+
+                // every link has been followed, "returning"
+                depth--;
+                if (lowLink[node] == index[node]) {
+                    int start = stackSize;
+                    do {
+                        onStack[stack[--start]] = false;
+                    } while (stack[start] != node);
+
+                    found.add(Arrays.copyOfRange(stack, start, stackSize));
+                    stackSize = start;
+                }
+
+                if (depth > 0) {
+                    int caller = callNode[depth - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[node]);
+                }
+            }
+        }
+
+        return found.toArray(new int[found.size()][]);
+    }
+}
@@ -1,60 +1,275 @@
 package com.stardisblue.ast.structure;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 
-public class Graph {
-    private HashMap<String, Integer> nodeIds = new HashMap<>();
-    private ArrayList<Boolean> belongsToProject = new ArrayList<>();
-    private ArrayList<Integer> countParents = new ArrayList<>();
-    private HashMap<Integer, HashSet<Integer>> linkIds = new HashMap<>();
+/**
+ * Immutable call graph in compressed sparse row form.
+ * <p>
+ * The nodes are given by the symbol id of their name and numbered in order of appearance.
+ * The targets of node <tt>n</tt> are <tt>targets[offsets[n]]</tt> to <tt>targets[offsets[n + 1] - 1]</tt>,
+ * sorted and without duplicates. The number of calls each link stands for is kept at the same index in
+ * <tt>weights</tt>. Use a {@link Builder} to create one.
+ */
+public class Graph implements GraphView {
+    private final SymbolTable symbols;
 
-    public boolean has(String node) {
-        return nodeIds.containsKey(node);
+    /**
+     * symbol id of each node
+     */
+    private final int[] nodeSymbols;
+    private final BitSet belongsToProject;
+    /**
+     * number of call sites targeting each node
+     */
+    private final int[] countParents;
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+
+    private Graph(SymbolTable symbols, int[] nodeSymbols, BitSet belongsToProject, int[] countParents,
+                  int[] offsets, int[] targets, int[] weights) {
+        this.symbols = symbols;
+        this.nodeSymbols = nodeSymbols;
+        this.belongsToProject = belongsToProject;
+        this.countParents = countParents;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    @Override
+    public int size() {
+        return nodeSymbols.length;
     }
 
-    public int get(String node) {
-        return nodeIds.get(node);
+    /**
+     * @return the number of distinct links
+     */
+    public int numberOfLinks() {
+        return targets.length;
     }
 
-    public int nextId() {
-        return nodeIds.size();
+    @Override
+    public String getName(int node) {
+        return symbols.name(nodeSymbols[node]);
     }
 
-    public HashMap<String, Integer> getIds() {
-        return nodeIds;
+    /**
+     * @param node id of the node
+     * @return the symbol id of its name
+     */
+    public int getSymbol(int node) {
+        return nodeSymbols[node];
     }
 
-    public ArrayList<Boolean> getIsNodeInProject() {
-        return belongsToProject;
+    @Override
+    public boolean isOwn(int node) {
+        return belongsToProject.get(node);
     }
 
-    public ArrayList<Integer> getSourceCount() {
-        return countParents;
+    /**
+     * @param node id of the node
+     * @return the number of call sites targeting it
+     */
+    public int getSourceCount(int node) {
+        return countParents[node];
     }
 
-    public HashMap<Integer, HashSet<Integer>> getLinkIds() {
-        return linkIds;
+    /**
+     * @param node id of the node
+     * @return the index in {@link #getTargets()} of its first target
+     */
+    @Override
+    public int linksFrom(int node) {
+        return offsets[node];
     }
 
-    public void belongs(boolean toProject) {
-        belongsToProject.add(toProject);
+    /**
+     * @param node id of the node
+     * @return the index in {@link #getTargets()} after its last target
+     */
+    @Override
+    public int linksTo(int node) {
+        return offsets[node + 1];
     }
 
-    public void belongs(int node, boolean setTo) {
-        belongsToProject.set(node, setTo);
+    /**
+     * @return the targets of all the nodes, see {@link #linksFrom(int)} and {@link #linksTo(int)}
+     */
+    public int[] getTargets() {
+        return targets;
     }
 
-    public void save(String node, int id) {
-        nodeIds.put(node, id);
+    @Override
+    public int getTarget(int link) {
+        return targets[link];
     }
 
-    public void beginCount(int at) {
-        countParents.add(at);
+    /**
+     * The more calls the link stands for, the stronger it is. The more the callee was called by everyone, the less
+     * each of its links weights
+     *
+     * @param link index of the link in {@link #getTargets()}
+     * @return the strength of the link
+     */
+    @Override
+    public float getStrength(int link) {
+        return (float) (weights[link] / (0.5 * countParents[targets[link]] + 0.5));
     }
 
-    public void incrementCount(int calleeId) {
-        countParents.set(calleeId, countParents.get(calleeId) + 1);
+    /**
+     * @param link index of the link in {@link #getTargets()}
+     * @return the number of calls from the source to the target of the link
+     */
+    public int getWeight(int link) {
+        return weights[link];
+    }
+
+    /**
+     * @return the number of calls of all the links, at the same index as {@link #getTargets()}
+     */
+    public int[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return an estimation of the memory used by the arrays of the graph, in bytes
+     */
+    public long footprint() {
+        return 4L * (nodeSymbols.length + countParents.length + offsets.length + targets.length + weights.length) +
+                belongsToProject.size() / 8;
+    }
+
+    /**
+     * Creates a graph, nodes and links can be added in any order
+     */
+    public static class Builder {
+        private final SymbolTable symbols;
+
+        /**
+         * node of each symbol id, shifted by one so that 0 means absent
+         */
+        private int[] nodeIds;
+        private int[] nodeSymbols = new int[16];
+        private int[] countParents = new int[16];
+        private final BitSet belongsToProject = new BitSet();
+        private int size = 0;
+
+        /**
+         * links in the order they were added, a link can be added several times
+         */
+        private int[] linkSources = new int[16];
+        private int[] linkTargets = new int[16];
+        private int[] linkCalls = new int[16];
+        private int numberOfLinks = 0;
+
+        /**
+         * @param symbols table the names of the nodes come from
+         */
+        public Builder(SymbolTable symbols) {
+            this.symbols = symbols;
+            this.nodeIds = new int[symbols.size()];
+        }
+
+        /**
+         * Returns the node of the symbol, it is added if it does not exist yet
+         *
+         * @param symbol symbol id of the name of the node
+         * @return the id of the node
+         */
+        public int node(int symbol) {
+            if (symbol >= nodeIds.length) { // interned after the creation of the builder
+                nodeIds = Arrays.copyOf(nodeIds, Math.max(symbol + 1, nodeIds.length * 2));
+            }
+            if (nodeIds[symbol] != 0) {
+                return nodeIds[symbol] - 1;
+            }
+
+            if (size == nodeSymbols.length) {
+                nodeSymbols = Arrays.copyOf(nodeSymbols, size * 2);
+                countParents = Arrays.copyOf(countParents, size * 2);
+            }
+
+            nodeSymbols[size] = symbol;
+            nodeIds[symbol] = size + 1;
+
+            return size++;
+        }
+
+        /**
+         * @param node id of a node declared in the project
+         */
+        public void belongs(int node) {
+            belongsToProject.set(node);
+        }
+
+        /**
+         * @param source id of the calling node
+         * @param target id of the called node
+         * @param calls  number of call sites
+         */
+        public void link(int source, int target, int calls) {
+            if (numberOfLinks == linkSources.length) {
+                linkSources = Arrays.copyOf(linkSources, numberOfLinks * 2);
+                linkTargets = Arrays.copyOf(linkTargets, numberOfLinks * 2);
+                linkCalls = Arrays.copyOf(linkCalls, numberOfLinks * 2);
+            }
+
+            linkSources[numberOfLinks] = source;
+            linkTargets[numberOfLinks] = target;
+            linkCalls[numberOfLinks] = calls;
+            numberOfLinks++;
+            countParents[target] += calls;
+        }
+
+        /**
+         * Links added several times are merged, their calls are summed
+         *
+         * @return the graph
+         */
+        public Graph build() {
+            // counting sort of the links by source
+            int[] offsets = new int[size + 1];
+            for (int i = 0; i < numberOfLinks; i++) {
+                offsets[linkSources[i] + 1]++;
+            }
+            for (int node = 0; node < size; node++) {
+                offsets[node + 1] += offsets[node];
+            }
+
+            // then each source sorts its links packed as target << 32 | calls
+            long[] sorted = new long[numberOfLinks];
+            int[] next = Arrays.copyOf(offsets, size);
+            for (int i = 0; i < numberOfLinks; i++) {
+                sorted[next[linkSources[i]]++] = (long) linkTargets[i] << 32 | (linkCalls[i] & 0xffffffffL);
+            }
+
+            int[] targets = new int[numberOfLinks];
+            int[] weights = new int[numberOfLinks];
+            int distinct = 0;
+            for (int node = 0; node < size; node++) {
+                int from = offsets[node];
+                int to = offsets[node + 1];
+                Arrays.sort(sorted, from, to);
+
+                offsets[node] = distinct;
+                for (int i = from; i < to; i++) {
+                    int target = (int) (sorted[i] >>> 32);
+                    if (i > from && target == targets[distinct - 1]) {
+                        weights[distinct - 1] += (int) sorted[i];
+                    } else {
+                        targets[distinct] = target;
+                        weights[distinct++] = (int) sorted[i];
+                    }
+                }
+            }
+            offsets[size] = distinct;
+
+            return new Graph(symbols, Arrays.copyOf(nodeSymbols, size), (BitSet) belongsToProject.clone(),
+                             Arrays.copyOf(countParents, size), offsets, Arrays.copyOf(targets, distinct),
+                             Arrays.copyOf(weights, distinct));
+        }
     }
 }
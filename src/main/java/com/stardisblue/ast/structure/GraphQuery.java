@@ -0,0 +1,263 @@
+package com.stardisblue.ast.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Answers reachability queries over a call graph.
+ * <p>
+ * The reverse links are indexed once, in the same compressed form as the graph, each query is then a breadth first
+ * search marking the visited nodes in a bitset : linear in the number of nodes and links it reaches.
+ * <p>
+ * A call may be dispatched to an overrider of the invoked method, these dispatch links are followed like the calls.
+ */
+public class GraphQuery {
+    private final Graph graph;
+
+    /**
+     * the calls then the dispatch links of node <tt>n</tt> are <tt>targets[offsets[n]]</tt> to
+     * <tt>targets[offsets[n + 1] - 1]</tt>
+     */
+    private final int[] offsets;
+    private final int[] targets;
+    /**
+     * the overriders of node <tt>n</tt> are <tt>overriders[dispatchOffsets[n]]</tt> to
+     * <tt>overriders[dispatchOffsets[n + 1] - 1]</tt>
+     */
+    private final int[] dispatchOffsets;
+    private final int[] overriders;
+    /**
+     * the callers of node <tt>n</tt> are <tt>sources[reverseOffsets[n]]</tt> to
+     * <tt>sources[reverseOffsets[n + 1] - 1]</tt>
+     */
+    private final int[] reverseOffsets;
+    private final int[] sources;
+
+    /**
+     * @param graph the graph to query
+     */
+    public GraphQuery(Graph graph) {
+        this(graph, new int[0], new int[0]);
+    }
+
+    /**
+     * @param graph      the graph to query
+     * @param overridden nodes whose calls may be dispatched to another node
+     * @param overriders the node each call may be dispatched to, at the same index
+     */
+    public GraphQuery(Graph graph, int[] overridden, int[] overriders) {
+        this.graph = graph;
+
+        int size = graph.size();
+
+        // counting sort of the dispatch links by overridden node
+        dispatchOffsets = new int[size + 1];
+        for (int node : overridden) {
+            dispatchOffsets[node + 1]++;
+        }
+        for (int node = 0; node < size; node++) {
+            dispatchOffsets[node + 1] += dispatchOffsets[node];
+        }
+        this.overriders = new int[overriders.length];
+        int[] next = Arrays.copyOf(dispatchOffsets, size);
+        for (int i = 0; i < overridden.length; i++) {
+            this.overriders[next[overridden[i]]++] = overriders[i];
+        }
+
+        // the calls of each node followed by its dispatch links
+        offsets = new int[size + 1];
+        targets = new int[graph.numberOfLinks() + overriders.length];
+        for (int node = 0; node < size; node++) {
+            int calls = graph.linksTo(node) - graph.linksFrom(node);
+            int dispatches = dispatchOffsets[node + 1] - dispatchOffsets[node];
+            System.arraycopy(graph.getTargets(), graph.linksFrom(node), targets, offsets[node], calls);
+            System.arraycopy(this.overriders, dispatchOffsets[node], targets, offsets[node] + calls, dispatches);
+            offsets[node + 1] = offsets[node] + calls + dispatches;
+        }
+
+        // counting sort of the links by target
+        reverseOffsets = new int[size + 1];
+        for (int target : targets) {
+            reverseOffsets[target + 1]++;
+        }
+        for (int node = 0; node < size; node++) {
+            reverseOffsets[node + 1] += reverseOffsets[node];
+        }
+
+        sources = new int[targets.length];
+        next = Arrays.copyOf(reverseOffsets, size);
+        for (int source = 0; source < size; source++) {
+            for (int link = offsets[source]; link < offsets[source + 1]; link++) {
+                sources[next[targets[link]]++] = source;
+            }
+        }
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * A method can be given without its parameters, all its overloads are then found
+     *
+     * @param name name of the node
+     * @return the nodes with this name
+     */
+    public BitSet find(String name) {
+        BitSet found = new BitSet(graph.size());
+        for (int node = 0; node < graph.size(); node++) {
+            String nodeName = graph.getName(node);
+            if (nodeName.equals(name) ||
+                    (nodeName.startsWith(name) && nodeName.length() > name.length() &&
+                            nodeName.charAt(name.length()) == '(')) {
+                found.set(node);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @param names names of the nodes
+     * @return the nodes with one of these names
+     * @see #find(String)
+     */
+    public BitSet find(Collection<String> names) {
+        BitSet found = new BitSet(graph.size());
+        for (String name : names) {
+            found.or(find(name));
+        }
+
+        return found;
+    }
+
+    /**
+     * @param nodes the called nodes
+     * @return the nodes calling them, directly or not. A node is part of it only if it is in a cycle
+     */
+    public BitSet callers(BitSet nodes) {
+        return search(nodes, reverseOffsets, sources, false);
+    }
+
+    /**
+     * @param nodes the calling nodes
+     * @return the nodes they call, directly or not. A node is part of it only if it is in a cycle
+     */
+    public BitSet callees(BitSet nodes) {
+        return search(nodes, offsets, targets, false);
+    }
+
+    /**
+     * @param entryPoints the nodes the execution starts from
+     * @return the entry points and all the nodes they call, directly or not
+     */
+    public BitSet reachable(BitSet entryPoints) {
+        return search(entryPoints, offsets, targets, true);
+    }
+
+    /**
+     * @param from calling node
+     * @param to   called node
+     * @return if there is a path of calls from one to the other
+     */
+    public boolean reaches(int from, int to) {
+        BitSet start = new BitSet(graph.size());
+        start.set(from);
+
+        return reachable(start).get(to);
+    }
+
+    /**
+     * @return the nodes of the project that are called by no other node, directly or through a method they override
+     */
+    public BitSet neverCalled() {
+        BitSet called = new BitSet(graph.size());
+        for (int node = 0; node < graph.size(); node++) {
+            for (int link = graph.linksFrom(node); link < graph.linksTo(node); link++) {
+                if (graph.getTarget(link) != node) { // recursion does not count
+                    called.set(graph.getTarget(link));
+                }
+            }
+        }
+        called = search(called, dispatchOffsets, overriders, true);
+
+        BitSet found = new BitSet(graph.size());
+        for (int node = called.nextClearBit(0); node < graph.size(); node = called.nextClearBit(node + 1)) {
+            if (graph.isOwn(node)) {
+                found.set(node);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @param entryPoints the nodes the execution starts from
+     * @return the nodes of the project that cannot be reached from the entry points
+     */
+    public BitSet unreachable(BitSet entryPoints) {
+        BitSet found = reachable(entryPoints);
+        found.flip(0, graph.size());
+
+        for (int node = found.nextSetBit(0); node >= 0; node = found.nextSetBit(node + 1)) {
+            if (!graph.isOwn(node)) {
+                found.clear(node);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @param nodes a set of nodes
+     * @return their names, in the order of their ids
+     */
+    public List<String> names(BitSet nodes) {
+        List<String> names = new ArrayList<>(nodes.cardinality());
+        for (int node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+            names.add(graph.getName(node));
+        }
+
+        return names;
+    }
+
+    /**
+     * Breadth first search, each node is queued at most once
+     *
+     * @param start        nodes the search starts from
+     * @param offsets      first link of each node
+     * @param neighbours   the other end of each link
+     * @param includeStart if the start nodes are part of the result even if they cannot be reached
+     * @return the visited nodes
+     */
+    private BitSet search(BitSet start, int[] offsets, int[] neighbours, boolean includeStart) {
+        BitSet visited = new BitSet(graph.size());
+        // a start node can be queued a second time when it is reached
+        int[] queue = new int[graph.size() + start.cardinality()];
+        int head = 0;
+        int tail = 0;
+
+        for (int node = start.nextSetBit(0); node >= 0 && node < graph.size(); node = start.nextSetBit(node + 1)) {
+            queue[tail++] = node;
+            if (includeStart) {
+                visited.set(node);
+            }
+        }
+
+        while (head < tail) {
+            int node = queue[head++];
+            for (int link = offsets[node]; link < offsets[node + 1]; link++) {
+                int neighbour = neighbours[link];
+                if (!visited.get(neighbour)) {
+                    visited.set(neighbour);
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+
+        return visited;
+    }
+}
@@ -0,0 +1,51 @@
+package com.stardisblue.ast.structure;
+
+/**
+ * Read access to a call graph, built in memory or read from an export.
+ * <p>
+ * The nodes are numbered from <tt>0</tt> to <tt>size() - 1</tt>, the links of node <tt>n</tt> are numbered from
+ * <tt>linksFrom(n)</tt> to <tt>linksTo(n) - 1</tt>.
+ */
+public interface GraphView {
+
+    /**
+     * @return the number of nodes
+     */
+    int size();
+
+    /**
+     * @param node id of the node
+     * @return the name of the node
+     */
+    String getName(int node);
+
+    /**
+     * @param node id of the node
+     * @return if the node is declared in the project
+     */
+    boolean isOwn(int node);
+
+    /**
+     * @param node id of the node
+     * @return the index of its first link
+     */
+    int linksFrom(int node);
+
+    /**
+     * @param node id of the node
+     * @return the index after its last link
+     */
+    int linksTo(int node);
+
+    /**
+     * @param link index of the link
+     * @return the id of the called node
+     */
+    int getTarget(int link);
+
+    /**
+     * @param link index of the link
+     * @return the strength of the link, see {@link Graph#getStrength(int)}
+     */
+    float getStrength(int link);
+}
@@ -1,72 +1,307 @@
 package com.stardisblue.ast.structure;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
+import java.util.function.ObjIntConsumer;
 
+/**
+ * Coupling matrix between classes, only the pairs that have invocations are stored.
+ * <p>
+ * The coupling of A and B is the number of invocations of A in B plus the ones of B in A, so only the upper triangle
+ * is kept : an invocation is counted in the cell of <tt>(min, max)</tt>. While counting the cells are in an open
+ * addressing hash table, {@link #generateTable()} then sorts them row by row.
+ */
 public class Matrix {
-    private final String[][] table;
-    private final int[][] matrix;
-    private HashMap<String, Integer> ids;
+    private static final long EMPTY = -1L;
+
+    /**
+     * index of each symbol id, shifted by one so that 0 means absent
+     */
+    private final int[] ids;
     private String[] names;
     private int compteur = 0;
 
-    public Matrix(List<String> keys) {
-        ids = new HashMap<>();
-        names = new String[keys.size()];
-        for (String key : keys) {
-            names[ids.size()] = key;
-            ids.put(key, ids.size());
+    /**
+     * counting, cells packed as <tt>row &lt;&lt; 32 | column</tt>, null once the table is generated
+     */
+    private long[] cells;
+    private int[] cellCounts;
+    private int numberOfCells = 0;
+
+    /**
+     * once generated, the cells of row <tt>i</tt> are <tt>columns[rowOffsets[i]]</tt> to
+     * <tt>columns[rowOffsets[i + 1] - 1]</tt>, sorted, with <tt>column &gt;= i</tt>
+     */
+    private int[] rowOffsets;
+    private int[] columns;
+    private int[] values;
+
+    /**
+     * @param symbols table the keys come from
+     * @param keys    symbol ids of the rows and columns
+     */
+    public Matrix(SymbolTable symbols, int[] keys) {
+        ids = new int[symbols.size()];
+        names = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            names[i] = symbols.name(keys[i]);
+            if (ids[keys[i]] == 0) {
+                ids[keys[i]] = i + 1;
+            }
+        }
+
+        cells = new long[16];
+        cellCounts = new int[16];
+        Arrays.fill(cells, EMPTY);
+    }
+
+    /**
+     * Empty matrix with the same rows and columns, sharing the index of the keys
+     */
+    private Matrix(Matrix matrix) {
+        ids = matrix.ids;
+        names = matrix.names;
+
+        cells = new long[16];
+        cellCounts = new int[16];
+        Arrays.fill(cells, EMPTY);
+    }
+
+    /**
+     * @return an empty matrix with the same rows and columns, to be counted separately and then merged using
+     * {@link #addAll(Matrix)}
+     */
+    public Matrix partial() {
+        return new Matrix(this);
+    }
+
+    /**
+     * Adds the counts of another matrix with the same rows and columns, neither table can be generated yet
+     *
+     * @param partial the other matrix
+     */
+    public void addAll(Matrix partial) {
+        if (cells == null || partial.cells == null) {
+            throw new IllegalStateException("The table has already been generated");
+        }
+
+        for (int i = 0; i < partial.cells.length; i++) {
+            if (partial.cells[i] != EMPTY) {
+                long cell = partial.cells[i];
+                add((int) (cell >>> 32), (int) cell, partial.cellCounts[i]);
+            }
         }
+        compteur += partial.compteur;
+    }
+
+    public void increment(int key, int key2) {
+        increment(key, key2, 1);
+    }
 
-        matrix = new int[ids.size()][ids.size()];
-        table = new String[ids.size() + 1][ids.size() + 1];
+    /**
+     * @param key   symbol id of the row
+     * @param key2  symbol id of the column
+     * @param count number of invocations between them
+     */
+    public void increment(int key, int key2, int count) {
+        if (cells == null) {
+            throw new IllegalStateException("The table has already been generated");
+        }
 
-        for (String[] strings : table) {
-            Arrays.fill(strings, "");
+        // symbols interned after the creation of the matrix are not keys either
+        if (key >= ids.length || key2 >= ids.length || ids[key] == 0 || ids[key2] == 0) {
+            return;
         }
+
+        int keyId = ids[key] - 1;
+        int key2Id = ids[key2] - 1;
+
+        add(Math.min(keyId, key2Id), Math.max(keyId, key2Id), count);
+        compteur += count;
     }
 
-    public void increment(String key, String key2) {
-        if (!ids.containsKey(key) || !ids.containsKey(key2)) {
+    private void add(int row, int column, int count) {
+        if (count == 0) {
             return;
         }
 
-        int keyId = ids.get(key);
-        int key2Id = ids.get(key2);
+        if (2 * (numberOfCells + 1) > cells.length) { // at most half full
+            long[] previousCells = cells;
+            int[] previousCounts = cellCounts;
 
-        ++matrix[keyId][key2Id];
-        ++compteur;
+            cells = new long[previousCells.length * 2];
+            cellCounts = new int[previousCells.length * 2];
+            Arrays.fill(cells, EMPTY);
+            for (int i = 0; i < previousCells.length; i++) {
+                if (previousCells[i] != EMPTY) {
+                    int slot = slot(previousCells[i]);
+                    cells[slot] = previousCells[i];
+                    cellCounts[slot] = previousCounts[i];
+                }
+            }
+        }
+
+        long cell = (long) row << 32 | column;
+        int slot = slot(cell);
+        if (cells[slot] == EMPTY) {
+            cells[slot] = cell;
+            numberOfCells++;
+        }
+        cellCounts[slot] += count;
     }
 
+    /**
+     * Fibonacci hashing : the slot is given by the high bits of the product, as many as the table needs, so every bit
+     * of the cell counts whatever the size of the table
+     *
+     * @param cell a packed cell
+     * @return its slot in the hash table, or the empty slot where it goes
+     */
+    private int slot(long cell) {
+        int mask = cells.length - 1; // the length is a power of two, at least 16
+        int slot = (int) ((cell * 0x9E3779B97F4A7C15L) >>> Long.numberOfLeadingZeros(mask));
+        while (cells[slot] != EMPTY && cells[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Sorts the counted cells by row and column, nothing can be incremented afterwards
+     */
     public void generateTable() {
-        // because first cell is empty ~tehe pero
-        for (int i = 0; i < names.length; ++i) { // setting up table name
-            table[0][i + 1] = names[i];
-            table[i + 1][0] = names[i];
+        if (cells == null) {
+            return;
         }
 
-        for (int i = 0; i < matrix.length; ++i) { // it's a square enix
-            for (int j = 0; j < matrix.length; ++j) {
-                if (i == j) continue;
-                int sum = matrix[i][j] + matrix[j][i];
-                table[i + 1][j + 1] = (sum != 0) ?
-                        (String.valueOf((float) sum / compteur) + " (" + sum + "/" + compteur + ")") :
-                        "-";
+        long[] sorted = new long[numberOfCells];
+        int[] sortedCounts = new int[numberOfCells];
+        int n = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != EMPTY) {
+                sorted[n++] = cells[i];
+            }
+        }
+        Arrays.sort(sorted);
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != EMPTY) {
+                sortedCounts[Arrays.binarySearch(sorted, cells[i])] = cellCounts[i];
             }
+        }
 
-            table[i + 1][i + 1] = (matrix[i][i] != 0) ?
-                    String.valueOf((float) matrix[i][i] / compteur) + " (" + matrix[i][i] + "/" + compteur + ")" :
-                    "-";
+        rowOffsets = new int[names.length + 1];
+        columns = new int[numberOfCells];
+        for (int i = 0; i < numberOfCells; i++) {
+            rowOffsets[(int) (sorted[i] >>> 32) + 1]++;
+            columns[i] = (int) sorted[i];
+        }
+        for (int row = 0; row < names.length; row++) {
+            rowOffsets[row + 1] += rowOffsets[row];
         }
+        values = sortedCounts;
+
+        cells = null;
+        cellCounts = null;
     }
 
-    public String[][] getTable() {
-        return table;
+    /**
+     * @return the number of rows, and of columns
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param i index of a class
+     * @param j index of a class
+     * @return the number of invocations between them, in both directions
+     */
+    public int get(int i, int j) {
+        int row = Math.min(i, j);
+        int found = Arrays.binarySearch(columns, rowOffsets[row], rowOffsets[row + 1], Math.max(i, j));
+
+        return found < 0 ? 0 : values[found];
+    }
+
+    /**
+     * @return the number of pairs that have invocations
+     */
+    public int numberOfCells() {
+        return columns.length;
+    }
+
+    /**
+     * @param row index of a class
+     * @return the index in {@link #getColumns()} of the first non zero cell of the row
+     */
+    public int rowFrom(int row) {
+        return rowOffsets[row];
+    }
+
+    /**
+     * @param row index of a class
+     * @return the index in {@link #getColumns()} after the last non zero cell of the row
+     */
+    public int rowTo(int row) {
+        return rowOffsets[row + 1];
+    }
+
+    /**
+     * @return the columns of the non zero cells, see {@link #rowFrom(int)} and {@link #rowTo(int)}
+     */
+    public int[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the values of the non zero cells, at the same index as {@link #getColumns()}
+     */
+    public int[] getValues() {
+        return values;
+    }
+
+    /**
+     * Gives each full row to the consumer, one after the other, in a buffer reused for all the rows.
+     * <p>
+     * The cells left of the diagonal are in the rows above, a cursor per row walks down their columns so that each
+     * stored cell is read once.
+     *
+     * @param consumer receives the values of the row and its index, the array must not be kept
+     */
+    public void forEachRow(ObjIntConsumer<int[]> consumer) {
+        int[] row = new int[names.length];
+        int[] cursors = Arrays.copyOf(rowOffsets, names.length);
+
+        for (int i = 0; i < names.length; i++) {
+            Arrays.fill(row, 0);
+
+            for (int j = 0; j < i; j++) {
+                int cursor = cursors[j];
+                while (cursor < rowOffsets[j + 1] && columns[cursor] < i) {
+                    cursor++;
+                }
+                if (cursor < rowOffsets[j + 1] && columns[cursor] == i) {
+                    row[j] = values[cursor++];
+                }
+                cursors[j] = cursor;
+            }
+
+            for (int cell = rowOffsets[i]; cell < rowOffsets[i + 1]; cell++) {
+                row[columns[cell]] = values[cell];
+            }
+
+            consumer.accept(row, i);
+        }
     }
 
-    public int[][] getMatrix() {
-        return matrix;
+    /**
+     * @param value number of invocations between two classes
+     * @return the value as a ratio of all the invocations, <tt>-</tt> if there is none
+     */
+    public String format(int value) {
+        return value != 0 ?
+                String.valueOf((float) value / compteur) + " (" + value + "/" + compteur + ")" :
+                "-";
     }
 
     public String[] getNames() {
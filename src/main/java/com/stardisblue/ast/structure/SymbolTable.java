@@ -0,0 +1,67 @@
+package com.stardisblue.ast.structure;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the class names and method signatures into dense ids.
+ * <p>
+ * A name is hashed once, when it is extracted, the graphs and the matrix then only work on the ids.
+ * Interning can be done from several threads, ids are never reused.
+ * <p>
+ * There is one table per analysed project, owned by its {@link com.stardisblue.ast.Parser} : the ids of two facts can
+ * be compared only if they come from the same table, and the table is dropped with the project.
+ */
+public final class SymbolTable {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    /**
+     * replaced when it grows, an id is always published after its name
+     */
+    private volatile String[] names = new String[1024];
+    private int size = 0;
+
+    /**
+     * @param name a class name or a method signature
+     * @return the id of the name, the same one each time
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = name;
+            names = current;
+
+            ids.put(name, size);
+
+            return size++;
+        }
+    }
+
+    /**
+     * @param id an id returned by {@link #intern(String)}
+     * @return the name it was given for
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of names interned, every id is lower than it
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
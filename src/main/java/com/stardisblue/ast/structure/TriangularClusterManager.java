@@ -0,0 +1,263 @@
+package com.stardisblue.ast.structure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Agglomerative clustering for a dense coupling matrix, merges in the same order as {@link ClusterManager}.
+ * <p>
+ * The similarities are kept in a single array holding the upper triangle row by row, a cluster stays in a slot and
+ * the fused cluster takes the slot of the smallest of the two. The cells of a merged slot are set to <tt>-1</tt> so
+ * that the scan of a row is a plain maximum without any branch, which the JIT can vectorize. The maximum of each row is
+ * kept, after a merge only the rows that lost their maximum are scanned again, split between the threads when there
+ * are many cells to read. The closest pair is then found from the maxima of the rows, in the order of the rows, so
+ * the result does not depend on the number of threads.
+ */
+public class TriangularClusterManager<T> {
+    /**
+     * below this number of cells the rows are scanned by the calling thread
+     */
+    private static final int PARALLEL_CELLS = 1 << 16;
+
+    private final int slots;
+    private final Cluster<T>[] clusters;
+    private int size;
+    private int nextName;
+
+    /**
+     * the cell of the slots <tt>i &lt; j</tt> is <tt>triangle[rowOffset(i) + j]</tt>, <tt>-1</tt> once one of them is
+     * merged
+     */
+    private final int[] triangle;
+    /**
+     * maximum of each row, <tt>-1</tt> for an empty or merged row
+     */
+    private final int[] rowMax;
+    private final int[] dirtyRows;
+
+    private final int threads;
+    private final ExecutorService executor;
+
+    /**
+     * @param clusters the classes, in the order of the rows of the matrix
+     * @param matrix   the coupling matrix
+     * @param threads  number of threads scanning the rows
+     */
+    @SuppressWarnings("unchecked")
+    public TriangularClusterManager(List<Cluster<T>> clusters, Matrix matrix, int threads) {
+        slots = clusters.size();
+        this.clusters = clusters.toArray(new Cluster[slots]);
+        size = slots;
+        nextName = slots;
+
+        long cells = (long) slots * (slots - 1) / 2;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many classes for a dense matrix : " + slots);
+        }
+        triangle = new int[(int) cells];
+
+        int[] columns = matrix.getColumns();
+        int[] values = matrix.getValues();
+        for (int i = 0; i < slots; i++) {
+            for (int cell = matrix.rowFrom(i); cell < matrix.rowTo(i); cell++) {
+                if (columns[cell] != i) { // the link to self is not a similarity
+                    triangle[rowOffset(i) + columns[cell]] = values[cell];
+                }
+            }
+        }
+
+        this.threads = Math.max(1, threads);
+        executor = this.threads > 1 ? Executors.newFixedThreadPool(this.threads) : null;
+
+        rowMax = new int[slots];
+        dirtyRows = new int[slots];
+        for (int i = 0; i < slots; i++) {
+            dirtyRows[i] = i;
+        }
+        scan(dirtyRows, slots);
+    }
+
+    /**
+     * @return the number of clusters left
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Fuses the two closest clusters, their similarity is set if it is the first time they are part of a merge
+     *
+     * @return the fused cluster
+     */
+    public Cluster<T> merge() {
+        if (size < 2) {
+            throw new IllegalStateException("There is only one cluster left");
+        }
+
+        // highest similarity, then smallest names
+        int max = -1;
+        for (int i = 0; i < slots; i++) {
+            max = Math.max(max, rowMax[i]);
+        }
+        int a = -1;
+        int b = -1;
+        if (max == 0) { // nothing is coupled anymore, the two smallest names are fused
+            for (int i = 0; i < slots; i++) {
+                if (clusters[i] == null) continue;
+
+                if (a == -1 || clusters[i].getName() < clusters[a].getName()) {
+                    b = a;
+                    a = i;
+                } else if (b == -1 || clusters[i].getName() < clusters[b].getName()) {
+                    b = i;
+                }
+            }
+        } else {
+            long closest = Long.MAX_VALUE;
+            for (int i = 0; i < slots; i++) {
+                if (rowMax[i] != max) continue;
+
+                int offset = rowOffset(i);
+                for (int j = i + 1; j < slots; j++) {
+                    if (triangle[offset + j] == max) {
+                        int name = clusters[i].getName();
+                        int name2 = clusters[j].getName();
+                        long pair = (long) Math.min(name, name2) << 32 | Math.max(name, name2);
+                        if (pair < closest) {
+                            closest = pair;
+                            a = i;
+                            b = j;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (a > b) {
+            int slot = a;
+            a = b;
+            b = slot;
+        }
+
+        Cluster<T> first = clusters[a].getName() < clusters[b].getName() ? clusters[a] : clusters[b];
+        Cluster<T> last = first == clusters[a] ? clusters[b] : clusters[a];
+        first.initSimilarity(max);
+        last.initSimilarity(max);
+
+        clusters[a] = new Cluster<>(nextName++, first, last, max);
+        clusters[b] = null;
+        size--;
+
+        // the fused cluster stays in slot a, the rows that had their maximum in slot b lose it
+        int dirty = 0;
+        dirtyRows[dirty++] = a;
+        for (int c = 0; c < slots; c++) {
+            if (c == a || c == b || clusters[c] == null) continue;
+
+            int ac = cell(a, c);
+            int bc = cell(b, c);
+            triangle[ac] += triangle[bc];
+            if (c < b && triangle[bc] == rowMax[c]) {
+                dirtyRows[dirty++] = c;
+            } else if (c < a) {
+                rowMax[c] = Math.max(rowMax[c], triangle[ac]);
+            }
+            triangle[bc] = -1;
+        }
+        triangle[cell(a, b)] = -1;
+        rowMax[b] = -1;
+        scan(dirtyRows, dirty);
+
+        return clusters[a];
+    }
+
+    /**
+     * @return the clusters left, by name
+     */
+    public ArrayList<Cluster<T>> getClusters() {
+        ArrayList<Cluster<T>> list = new ArrayList<>(size);
+        for (Cluster<T> cluster : clusters) {
+            if (cluster != null) {
+                list.add(cluster);
+            }
+        }
+        list.sort((c1, c2) -> c1.getName() - c2.getName());
+
+        return list;
+    }
+
+    /**
+     * Stops the threads, the clusters cannot be merged afterwards
+     */
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param i a slot
+     * @return the index of the cell <tt>(i, 0)</tt>, only the cells after the diagonal exist
+     */
+    private int rowOffset(int i) {
+        return (int) ((long) i * (2 * slots - i - 1) / 2) - i - 1;
+    }
+
+    private int cell(int i, int j) {
+        return i < j ? rowOffset(i) + j : rowOffset(j) + i;
+    }
+
+    /**
+     * Computes the maximum of the rows, the rows are striped over the threads if they have enough cells
+     *
+     * @param rows  the rows to scan
+     * @param count number of rows
+     */
+    private void scan(int[] rows, int count) {
+        long cells = 0;
+        for (int r = 0; r < count; r++) {
+            cells += slots - rows[r] - 1;
+        }
+
+        if (executor == null || cells < PARALLEL_CELLS) {
+            scan(rows, count, 0, 1);
+            return;
+        }
+
+        int workers = Math.min(threads, count);
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            int offset = worker;
+            futures.add(executor.submit(() -> scan(rows, count, offset, workers)));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Clustering has been interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Clustering failed", e.getCause());
+        }
+    }
+
+    private void scan(int[] rows, int count, int offset, int step) {
+        for (int r = offset; r < count; r += step) {
+            int row = rows[r];
+            int from = rowOffset(row) + row + 1;
+            int to = from + slots - row - 1;
+
+            int max = -1;
+            for (int cell = from; cell < to; cell++) {
+                max = Math.max(max, triangle[cell]);
+            }
+            rowMax[row] = clusters[row] != null ? max : -1;
+        }
+    }
+}
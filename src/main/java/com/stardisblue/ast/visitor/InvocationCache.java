@@ -0,0 +1,101 @@
+package com.stardisblue.ast.visitor;
+
+import com.stardisblue.ast.info.MethodInvocationInfo;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.logging.Logger;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolved targets of the invocations, keyed by the key of the method binding.
+ * <p>
+ * A target is read from its binding once, every call site invoking it then references the same decorator.
+ * Shared by the workers of a parser during one parse, it is cleared before the next one so that it does not keep the
+ * targets of files that changed or were deleted.
+ */
+public class InvocationCache {
+
+    private final SymbolTable symbols;
+    private final ConcurrentHashMap<String, MethodInvocationInfo> targets = new ConcurrentHashMap<>();
+
+    private final LongAdder callSites = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param symbols table the names of the targets are interned in
+     */
+    public InvocationCache(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * @return the table the names of the targets are interned in
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @param binding binding of a call site
+     * @return the decorator of the invoked method
+     */
+    public MethodInvocationInfo get(IMethodBinding binding) {
+        callSites.increment();
+
+        String key = binding.getKey();
+        if (key == null) { // recovered bindings may have no key
+            return target(binding);
+        }
+
+        MethodInvocationInfo target = targets.get(key);
+        if (target != null) {
+            hits.increment();
+            return target;
+        }
+
+        target = target(binding);
+        MethodInvocationInfo previous = targets.putIfAbsent(key, target);
+
+        return previous != null ? previous : target;
+    }
+
+    private MethodInvocationInfo target(IMethodBinding binding) {
+        List<String> parameters = new ArrayList<>(binding.getParameterTypes().length);
+        for (ITypeBinding iTypeBinding : binding.getParameterTypes()) {
+            parameters.add(iTypeBinding.getTypeDeclaration().getName());
+        }
+
+        ITypeBinding declaringClass = binding.getDeclaringClass();
+
+        return new MethodInvocationInfo(symbols, binding.getName(),
+                                        declaringClass.getName(),
+                                        declaringClass.getPackage().getName(),
+                                        declaringClass.getTypeDeclaration().getName(),
+                                        parameters);
+    }
+
+    /**
+     * Forgets the targets and the counts, the decorators already created are kept by their call sites
+     */
+    public void clear() {
+        targets.clear();
+        callSites.reset();
+        hits.reset();
+    }
+
+    /**
+     * Displays the number of call sites and how many of them were found in the cache
+     */
+    public void log() {
+        long sites = callSites.sum();
+        long found = hits.sum();
+
+        Logger.println("Invocation cache", sites + " call site(s), " + targets.size() + " target(s), " +
+                found + " hit(s) (" + (sites == 0 ? 0 : 100 * found / sites) + "%)", Logger.DEBUG);
+    }
+}
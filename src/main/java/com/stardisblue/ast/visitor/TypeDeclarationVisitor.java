@@ -1,33 +1,462 @@
 package com.stardisblue.ast.visitor;
 
-import com.stardisblue.ast.info.TypeDeclarationInfo;
+import com.stardisblue.ast.info.*;
+import com.stardisblue.ast.structure.SymbolTable;
+import com.stardisblue.logging.Logger;
 import org.eclipse.jdt.core.dom.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
+/**
+ * Extracts the types, fields, methods, parameters and invocations in a single walk of the compilation unit.
+ * <p>
+ * The enclosing declarations are kept in explicit stacks, an element is attributed to every declaration it is
+ * nested in :
+ * <ul>
+ * <li>a method belongs to its type and to every type one of whose methods contains it</li>
+ * <li>a field belongs to its type and to every type one of whose fields contains it (anonymous classes)</li>
+ * <li>an invocation or a variable belongs to every method containing it</li>
+ * </ul>
+ * The method invocations are the calls of the report. The <tt>super</tt> invocations, instance creations, constructor
+ * invocations and method references are kept apart as references, used by the queries only. A constructor is invoked
+ * by the name of its class.
+ */
 public class TypeDeclarationVisitor extends ASTVisitor {
 
+    private final boolean keepUnresolved;
+    private final InvocationCache invocations;
+
     private ArrayList<TypeDeclarationInfo> decorators = new ArrayList<>();
     private ArrayList<TypeDeclarationWrapper> wrappers = new ArrayList<>();
 
+    /**
+     * innermost type being visited last
+     */
+    private ArrayList<TypeDeclarationWrapper> types = new ArrayList<>();
+    /**
+     * innermost type body being visited last : classes, interfaces, enums and anonymous classes, used for the
+     * <tt>this(...)</tt>, <tt>super(...)</tt> and <tt>super.m()</tt> invocations
+     */
+    private ArrayList<TypeScope> scopes = new ArrayList<>();
+    /**
+     * types collecting the methods visited, one entry per method of a type being visited
+     */
+    private ArrayList<TypeDeclarationWrapper> methodCollectors = new ArrayList<>();
+    /**
+     * types collecting the fields visited, one entry per field of a type being visited
+     */
+    private ArrayList<TypeDeclarationWrapper> fieldCollectors = new ArrayList<>();
+    /**
+     * methods being visited, they collect the invocations and the variables
+     */
+    private ArrayList<MethodDeclarationWrapper> methods = new ArrayList<>();
+    /**
+     * parameter being visited, waiting for its first simple type
+     */
+    private SingleVariableDeclarationWrapper parameter;
+
+    public TypeDeclarationVisitor() {
+        this(false, new InvocationCache(new SymbolTable()));
+    }
+
+    /**
+     * @param keepUnresolved if the invocations are kept when the parser does not resolve bindings
+     * @param invocations    targets of the binded invocations, shared between the visitors, the names are interned in
+     *                       its table
+     */
+    public TypeDeclarationVisitor(boolean keepUnresolved, InvocationCache invocations) {
+        this.keepUnresolved = keepUnresolved;
+        this.invocations = invocations;
+    }
+
     @Override
     public boolean visit(TypeDeclaration node) {
         TypeDeclarationWrapper w = new TypeDeclarationWrapper();
         w.node = node;
 
-        for (MethodDeclaration methodDeclaration : node.getMethods()) {
-            methodDeclaration.accept(w.methodDeclarationVisitor);
+        wrappers.add(w);
+        types.add(w);
+        scopes.add(new TypeScope(node.getName().getIdentifier(),
+                                 node.getSuperclassType() == null ? null : node.getSuperclassType().toString()));
+
+        return super.visit(node);
+    }
+
+    @Override
+    public void endVisit(TypeDeclaration node) {
+        types.remove(types.size() - 1);
+        scopes.remove(scopes.size() - 1);
+    }
+
+    @Override
+    public boolean visit(EnumDeclaration node) {
+        scopes.add(new TypeScope(node.getName().getIdentifier(), "Enum"));
+        return super.visit(node);
+    }
+
+    @Override
+    public void endVisit(EnumDeclaration node) {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    @Override
+    public boolean visit(AnonymousClassDeclaration node) {
+        // the created type, or the enum of the constant whose body it is
+        TypeScope enclosing = scope();
+        String superclass = node.getParent() instanceof ClassInstanceCreation ?
+                ((ClassInstanceCreation) node.getParent()).getType().toString() :
+                enclosing == null ? null : enclosing.name;
+        scopes.add(new TypeScope(null, superclass));
+
+        return super.visit(node);
+    }
+
+    @Override
+    public void endVisit(AnonymousClassDeclaration node) {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    /**
+     * @return the innermost type body, null if there is none
+     */
+    private TypeScope scope() {
+        return scopes.isEmpty() ? null : scopes.get(scopes.size() - 1);
+    }
+
+    @Override
+    public boolean visit(MethodDeclaration node) {
+        if (node.getParent() instanceof TypeDeclaration) {
+            methodCollectors.add(types.get(types.size() - 1));
         }
 
-        for (FieldDeclaration fieldDeclaration : node.getFields()) {
-            fieldDeclaration.accept(w.fieldDeclarationVisitor);
+        MethodDeclarationWrapper w = new MethodDeclarationWrapper();
+        w.node = node;
+
+        for (TypeDeclarationWrapper type : methodCollectors) {
+            type.methods.add(w);
         }
+        methods.add(w);
 
-        wrappers.add(w);
+        return super.visit(node);
+    }
+
+    @Override
+    public void endVisit(MethodDeclaration node) {
+        methods.remove(methods.size() - 1);
+
+        if (node.getParent() instanceof TypeDeclaration) {
+            methodCollectors.remove(methodCollectors.size() - 1);
+        }
+    }
+
+    @Override
+    public boolean visit(FieldDeclaration node) {
+        if (node.getParent() instanceof TypeDeclaration) {
+            fieldCollectors.add(types.get(types.size() - 1));
+        }
+
+        for (TypeDeclarationWrapper type : fieldCollectors) {
+            type.fields.add(node);
+        }
 
         return super.visit(node);
     }
 
+    @Override
+    public void endVisit(FieldDeclaration node) {
+        if (node.getParent() instanceof TypeDeclaration) {
+            fieldCollectors.remove(fieldCollectors.size() - 1);
+        }
+    }
+
+    @Override
+    public boolean visit(SingleVariableDeclaration node) {
+        // a single variable declaration directly in a method is one of its parameters
+        if (!methods.isEmpty() && node.getParent() == methods.get(methods.size() - 1).node) {
+            parameter = new SingleVariableDeclarationWrapper();
+            parameter.node = node;
+            methods.get(methods.size() - 1).parameters.add(parameter);
+        }
+
+        if (keepUnresolved) {
+            declare(node.getName().getIdentifier(), node.getType().toString());
+        }
+
+        return super.visit(node);
+    }
+
+    @Override
+    public void endVisit(SingleVariableDeclaration node) {
+        if (parameter != null && parameter.node == node) {
+            parameter = null;
+        }
+    }
+
+    @Override
+    public boolean visit(SimpleType node) {
+        // the class type of a parameter is the first simple type found in it
+        if (parameter != null && parameter.classType == null) {
+            parameter.classType = node.toString();
+        }
+
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(VariableDeclarationStatement node) {
+        if (keepUnresolved) {
+            declare(node.getType(), node.fragments());
+        }
+
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(VariableDeclarationExpression node) {
+        if (keepUnresolved) {
+            declare(node.getType(), node.fragments());
+        }
+
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(MethodInvocation node) {
+        callSite(node, false);
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(SuperMethodInvocation node) {
+        callSite(node, true);
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+        callSite(node, true);
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(ConstructorInvocation node) {
+        callSite(node, true);
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(SuperConstructorInvocation node) {
+        callSite(node, true);
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(ExpressionMethodReference node) {
+        callSite(node, true);
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(TypeMethodReference node) {
+        callSite(node, true);
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(SuperMethodReference node) {
+        callSite(node, true);
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(CreationReference node) {
+        callSite(node, true);
+        return super.visit(node);
+    }
+
+    /**
+     * The call site belongs to every method containing it
+     *
+     * @param node      an invocation, an instance creation or a method reference
+     * @param reference if the call site is not a method invocation
+     */
+    private void callSite(ASTNode node, boolean reference) {
+        if (methods.isEmpty()) {
+            return;
+        }
+
+        if (keepUnresolved) {
+            // nothing is binded, we only keep what is needed to find the invoked method afterwards
+            // the receiver is guessed once per method since each one knows different variables
+            for (MethodDeclarationWrapper method : methods) {
+                UnresolvedInvocationInfo unresolved = unresolvedInfo(node, method.variables);
+                if (unresolved != null) {
+                    method.unresolved.add(new UnresolvedInvocationInfo(unresolved.getName(), unresolved.getReceiver(),
+                                                                       unresolved.isReceiverType(),
+                                                                       unresolved.numberOfArguments(), reference));
+                }
+            }
+        } else {
+            boolean binded = binding(node) != null;
+            for (MethodDeclarationWrapper method : methods) {
+                (reference ? method.references : method.invocations).add(node);
+
+                if (!binded) {
+                    // kept by name, a file calling a method that does not exist yet has to be parsed again once it is
+                    // declared
+                    UnresolvedInvocationInfo unresolved = unresolvedInfo(node, method.variables);
+                    if (unresolved != null) {
+                        method.unresolved.add(new UnresolvedInvocationInfo(unresolved.getName(), "", false,
+                                                                           unresolved.numberOfArguments(), reference));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param node a call site
+     * @return the binding of the invoked method or constructor, null if it cannot be resolved
+     */
+    private static IMethodBinding binding(ASTNode node) {
+        if (node instanceof MethodInvocation) return ((MethodInvocation) node).resolveMethodBinding();
+        if (node instanceof SuperMethodInvocation) return ((SuperMethodInvocation) node).resolveMethodBinding();
+        if (node instanceof MethodReference) return ((MethodReference) node).resolveMethodBinding();
+        if (node instanceof ClassInstanceCreation) return ((ClassInstanceCreation) node).resolveConstructorBinding();
+        if (node instanceof ConstructorInvocation) return ((ConstructorInvocation) node).resolveConstructorBinding();
+
+        return ((SuperConstructorInvocation) node).resolveConstructorBinding();
+    }
+
+    private void declare(Type type, List fragments) {
+        for (Object fragment : fragments) {
+            declare(((VariableDeclarationFragment) fragment).getName().getIdentifier(), type.toString());
+        }
+    }
+
+    /**
+     * The variable is known by every method containing it
+     *
+     * @param name name of the parameter or local variable
+     * @param type declared type
+     */
+    private void declare(String name, String type) {
+        for (MethodDeclarationWrapper method : methods) {
+            method.variables.put(name, type);
+        }
+    }
+
+    /**
+     * Guesses the invoked method without using bindings, a constructor is invoked on its class
+     *
+     * @param node      the call site
+     * @param variables declared types of the parameters and local variables known by the method
+     * @return the decorator of the unresolved invocation, null if nothing of the project can be invoked
+     */
+    private UnresolvedInvocationInfo unresolvedInfo(ASTNode node, HashMap<String, String> variables) {
+        if (node instanceof MethodInvocation) {
+            MethodInvocation invocation = (MethodInvocation) node;
+            return unresolvedInfo(invocation.getName().getIdentifier(), invocation.getExpression(),
+                                  invocation.arguments().size(), variables);
+        }
+        if (node instanceof ExpressionMethodReference) {
+            ExpressionMethodReference reference = (ExpressionMethodReference) node;
+            return unresolvedInfo(reference.getName().getIdentifier(), reference.getExpression(),
+                                  UnresolvedInvocationInfo.UNKNOWN_ARGUMENTS, variables);
+        }
+        if (node instanceof TypeMethodReference) {
+            TypeMethodReference reference = (TypeMethodReference) node;
+            return new UnresolvedInvocationInfo(reference.getName().getIdentifier(), reference.getType().toString(),
+                                                true, UnresolvedInvocationInfo.UNKNOWN_ARGUMENTS);
+        }
+        if (node instanceof SuperMethodInvocation) {
+            SuperMethodInvocation invocation = (SuperMethodInvocation) node;
+            return onSuper(invocation.getName().getIdentifier(), invocation.getQualifier(),
+                           invocation.arguments().size());
+        }
+        if (node instanceof SuperMethodReference) {
+            SuperMethodReference reference = (SuperMethodReference) node;
+            return onSuper(reference.getName().getIdentifier(), reference.getQualifier(),
+                           UnresolvedInvocationInfo.UNKNOWN_ARGUMENTS);
+        }
+        if (node instanceof ClassInstanceCreation) {
+            ClassInstanceCreation creation = (ClassInstanceCreation) node;
+            return constructor(creation.getType().toString(), creation.arguments().size());
+        }
+        if (node instanceof CreationReference) {
+            return constructor(((CreationReference) node).getType().toString(),
+                               UnresolvedInvocationInfo.UNKNOWN_ARGUMENTS);
+        }
+        TypeScope scope = scope();
+        if (node instanceof ConstructorInvocation) {
+            // an anonymous class has no constructor to invoke
+            return scope == null || scope.name == null ? null :
+                    new UnresolvedInvocationInfo(scope.name, null, false,
+                                                 ((ConstructorInvocation) node).arguments().size());
+        }
+
+        return scope == null || scope.superclass == null ? null : // the constructor of Object
+                constructor(scope.superclass, ((SuperConstructorInvocation) node).arguments().size());
+    }
+
+    /**
+     * @param name      name of the invoked method
+     * @param qualifier the interface of <tt>Interface.super.name()</tt>, null for the superclass
+     * @param numberOfArguments number of arguments, {@link UnresolvedInvocationInfo#UNKNOWN_ARGUMENTS} if unknown
+     * @return the invocation of the method on the super type of the innermost type, null if there is no type
+     */
+    private UnresolvedInvocationInfo onSuper(String name, Name qualifier, int numberOfArguments) {
+        if (qualifier != null) {
+            return new UnresolvedInvocationInfo(name, qualifier.getFullyQualifiedName(), true, numberOfArguments);
+        }
+
+        TypeScope scope = scope();
+        if (scope == null) {
+            return null;
+        }
+
+        return new UnresolvedInvocationInfo(name, scope.superclass == null ? "Object" : scope.superclass, true,
+                                            numberOfArguments);
+    }
+
+    private static UnresolvedInvocationInfo constructor(String type, int numberOfArguments) {
+        String erased = erasure(type);
+        return new UnresolvedInvocationInfo(erased.substring(erased.lastIndexOf('.') + 1), type, true,
+                                            numberOfArguments);
+    }
+
+    private static UnresolvedInvocationInfo unresolvedInfo(String name, Expression expression, int numberOfArguments,
+                                                           HashMap<String, String> variables) {
+        if (expression == null || expression instanceof ThisExpression) {
+            return new UnresolvedInvocationInfo(name, null, false, numberOfArguments);
+        }
+
+        if (expression instanceof SimpleName) {
+            String identifier = ((SimpleName) expression).getIdentifier();
+            String declaredType = variables.get(identifier);
+
+            // either a variable of the method or something that is resolved with the fields and the classes
+            return declaredType != null ?
+                    new UnresolvedInvocationInfo(name, declaredType, true, numberOfArguments) :
+                    new UnresolvedInvocationInfo(name, identifier, false, numberOfArguments);
+        }
+
+        if (expression instanceof ClassInstanceCreation) {
+            String type = ((ClassInstanceCreation) expression).getType().toString();
+            return new UnresolvedInvocationInfo(name, type, true, numberOfArguments);
+        }
+
+        if (expression instanceof Name) {
+            String qualifiedName = ((Name) expression).getFullyQualifiedName();
+            return new UnresolvedInvocationInfo(name, qualifiedName, false, numberOfArguments);
+        }
+
+        // the type of any other expression cannot be known without bindings
+        return new UnresolvedInvocationInfo(name, "", false, numberOfArguments);
+    }
+
     /**
      * Used to create the decorators and resolve dependencies
      *
@@ -40,13 +469,16 @@ public class TypeDeclarationVisitor extends ASTVisitor {
 
         decorators = new ArrayList<>(wrappers.size());
 
+        List<String> imports = imports(parent);
+
         for (TypeDeclarationWrapper w : wrappers) {
             // - creating info
-            TypeDeclarationInfo type = new TypeDeclarationInfo(parent, w.node,
-                                                               w.fieldDeclarationVisitor.size(),
-                                                               w.methodDeclarationVisitor.size());
+            TypeDeclarationInfo type = new TypeDeclarationInfo(invocations.getSymbols(), w.node.getName().toString(),
+                                                               packageName(parent), numberOfLines(parent, w.node),
+                                                               imports, superTypes(w.node), w.fields.size(),
+                                                               w.methods.size());
             // - resolving cyclic dependency injection
-            type.setup(w.fieldDeclarationVisitor.infos(type), w.methodDeclarationVisitor.infos(parent, type));
+            type.setup(fieldInfos(w, type), methodInfos(parent, w, type));
 
             // - adding to the list of decorators
             decorators.add(type);
@@ -58,12 +490,207 @@ public class TypeDeclarationVisitor extends ASTVisitor {
         return decorators;
     }
 
+    private static List<FieldDeclarationInfo> fieldInfos(TypeDeclarationWrapper w, TypeDeclarationInfo parent) {
+        List<FieldDeclarationInfo> fields = new ArrayList<>(w.fields.size());
+
+        Logger.println("Fields", "", Logger.DEBUG);
+
+        for (FieldDeclaration field : w.fields) {
+            List<String> fragments = new ArrayList<>(field.fragments().size());
+            for (Object fragment : field.fragments()) {
+                fragments.add(((VariableDeclarationFragment) fragment).getName().toString());
+            }
+
+            fields.add(new FieldDeclarationInfo(parent, field.getType().toString(), fragments));
+        }
+
+        return fields;
+    }
+
+    private List<MethodDeclarationInfo> methodInfos(CompilationUnit compilationUnit,
+                                                    TypeDeclarationWrapper w, TypeDeclarationInfo parent) {
+        List<MethodDeclarationInfo> methods = new ArrayList<>(w.methods.size());
+
+        Logger.println("Methods", "", Logger.DEBUG);
+
+        for (MethodDeclarationWrapper m : w.methods) {
+            // - creating decorator
+            Type returnType = m.node.getReturnType2();
+            MethodDeclarationInfo method = new MethodDeclarationInfo(parent, m.node.getName().toString(),
+                                                                     returnType == null ? "" : returnType.toString(),
+                                                                     numberOfLines(compilationUnit, m.node),
+                                                                     m.parameters.size(), m.invocations.size());
+            // - resolving cyclic dependencies
+            method.setup(parameterInfos(m, method), invocationInfos(m.invocations));
+            method.setupReferences(invocationInfos(m.references));
+            method.setupUnresolved(m.unresolved);
+            // - adding to the list of decorators
+            methods.add(method);
+        }
+
+        return methods;
+    }
+
+    private static List<ParameterInfo> parameterInfos(MethodDeclarationWrapper m, MethodDeclarationInfo parent) {
+        List<ParameterInfo> parameters = new ArrayList<>(m.parameters.size());
+
+        for (SingleVariableDeclarationWrapper p : m.parameters) {
+            parameters.add(new ParameterInfo(parent, p.node.getName().toString(), p.node.getType().toString(),
+                                             p.classType));
+        }
+
+        return parameters;
+    }
+
+    private List<MethodInvocationInfo> invocationInfos(List<ASTNode> callSites) {
+        List<MethodInvocationInfo> targets = new ArrayList<>(callSites.size());
+
+        for (ASTNode node : callSites) {
+            IMethodBinding binding = binding(node);
+
+            // ? checking if the methodinvocation information has been found, the constructor of an anonymous class has
+            // no name to be called by
+            if (binding == null || (binding.isConstructor() && binding.getDeclaringClass().isAnonymous())) {
+                continue;
+            }
+
+            // the call site references the target shared with the other call sites
+            targets.add(invocations.get(binding));
+        }
+
+        return targets;
+    }
+
+    /**
+     * @param node a type declaration
+     * @return the extended class and the implemented interfaces, without their type arguments
+     */
+    static List<String> superTypes(TypeDeclaration node) {
+        List<String> superTypes = new ArrayList<>(node.superInterfaceTypes().size() + 1);
+
+        if (node.getSuperclassType() != null) {
+            superTypes.add(erasure(node.getSuperclassType()));
+        }
+        for (Object superInterface : node.superInterfaceTypes()) {
+            superTypes.add(erasure((Type) superInterface));
+        }
+
+        return superTypes;
+    }
+
+    private static String erasure(Type type) {
+        return erasure(type.toString());
+    }
+
+    private static String erasure(String name) {
+        int arguments = name.indexOf('<');
+
+        return arguments == -1 ? name : name.substring(0, arguments);
+    }
+
+    /**
+     * @param compilationUnit the compilation unit
+     * @return the imported types and packages (ending with <tt>.*</tt>), static imports are ignored
+     */
+    static List<String> imports(CompilationUnit compilationUnit) {
+        List<String> imports = new ArrayList<>(compilationUnit.imports().size());
+
+        for (Object obj : compilationUnit.imports()) {
+            ImportDeclaration importDeclaration = (ImportDeclaration) obj;
+            if (importDeclaration.isStatic()) {
+                continue;
+            }
+
+            String name = importDeclaration.getName().getFullyQualifiedName();
+            imports.add(importDeclaration.isOnDemand() ? name + ".*" : name);
+        }
+
+        return imports;
+    }
+
+    /**
+     * @param compilationUnit the compilation unit
+     * @return the name of the package, empty if there is none
+     */
+    static String packageName(CompilationUnit compilationUnit) {
+        if (compilationUnit.getPackage() != null) {
+            return compilationUnit.getPackage().getName().toString();
+        }
+
+        return "";
+    }
+
+    /**
+     * @param compilationUnit compilation unit containing the node
+     * @param node            a declaration
+     * @return the number of lines of the declaration
+     */
+    static int numberOfLines(CompilationUnit compilationUnit, ASTNode node) {
+        // counting line numbers
+        int startLine = compilationUnit.getLineNumber(node.getStartPosition());
+        // -1 for lenght correction
+        int endLine = compilationUnit.getLineNumber(node.getStartPosition() + node.getLength() - 1);
+
+        return endLine - startLine;
+    }
+
     /**
      * Used for saving structures while visiting
      */
-    private class TypeDeclarationWrapper {
+    private static class TypeDeclarationWrapper {
         TypeDeclaration node;
-        FieldDeclarationVisitor fieldDeclarationVisitor = new FieldDeclarationVisitor();
-        MethodDeclarationVisitor methodDeclarationVisitor = new MethodDeclarationVisitor();
+        List<FieldDeclaration> fields = new ArrayList<>();
+        List<MethodDeclarationWrapper> methods = new ArrayList<>();
+    }
+
+    /**
+     * A type body being visited
+     */
+    private static class TypeScope {
+        /**
+         * simple name of the type, null for an anonymous class
+         */
+        final String name;
+        /**
+         * the extended class as written in the sources, null if there is none
+         */
+        final String superclass;
+
+        TypeScope(String name, String superclass) {
+            this.name = name;
+            this.superclass = superclass;
+        }
+    }
+
+    /**
+     * Used for saving structures while visiting, shared by all the types the method belongs to
+     */
+    private static class MethodDeclarationWrapper {
+        MethodDeclaration node;
+        List<SingleVariableDeclarationWrapper> parameters = new ArrayList<>();
+        /**
+         * method invocations, when the bindings are resolved
+         */
+        List<ASTNode> invocations = new ArrayList<>();
+        /**
+         * the other call sites, when the bindings are resolved
+         */
+        List<ASTNode> references = new ArrayList<>(0);
+        /**
+         * call sites without binding
+         */
+        List<UnresolvedInvocationInfo> unresolved = new ArrayList<>();
+        /**
+         * declared types of the parameters and local variables, used to find the type of a receiver
+         */
+        HashMap<String, String> variables = new HashMap<>();
+    }
+
+    /**
+     * Used for saving structures while visiting
+     */
+    private static class SingleVariableDeclarationWrapper {
+        SingleVariableDeclaration node;
+        String classType;
     }
 }
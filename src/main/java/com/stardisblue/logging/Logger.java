@@ -63,7 +63,7 @@ public final class Logger {
      * @param o      the object to PrettyPrint
      * @param status status of the text
      */
-    public static void print(Object o, int status) {
+    public static synchronized void print(Object o, int status) {
         if ((status & displayDebug) != 0) {
             severity = getSeverityString(status);
             System.out.print(concatAll(o));
@@ -77,7 +77,7 @@ public final class Logger {
      * @param o      the object to PrettyPrint
      * @param status status of the text
      */
-    public static void println(Object o, int status) {
+    public static synchronized void println(Object o, int status) {
         if ((status & displayDebug) != 0) {
             severity = getSeverityString(status);
             System.out.println(concatAll(o));
@@ -91,7 +91,7 @@ public final class Logger {
      * @param o      the object to PrettyPrint
      * @param status status of the text
      */
-    public static void print(String name, Object o, int status) {
+    public static synchronized void print(String name, Object o, int status) {
         if ((status & displayDebug) != 0) {
             severity = getSeverityString(status);
             System.out.print(concatAll(name, o));
@@ -104,7 +104,7 @@ public final class Logger {
      * @param name name of the object
      * @param o    Object to display
      */
-    public static void println(String name, Object o, int status) {
+    public static synchronized void println(String name, Object o, int status) {
         if ((status & displayDebug) != 0) {
             severity = getSeverityString(status);
             System.out.println(concatAll(name, o));
@@ -117,7 +117,7 @@ public final class Logger {
      * @param title  text to display
      * @param status status of the title
      */
-    public static void printTitle(String title, int status) {
+    public static synchronized void printTitle(String title, int status) {
         if ((status & displayDebug) != 0) {
             severity = getSeverityString(status);
             System.out.println(concatAll(createTitle(title)));
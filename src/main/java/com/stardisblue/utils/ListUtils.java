@@ -189,9 +189,13 @@ public class ListUtils {
      * @param array     array of values
      * @param intValue function to get an item value
      * @param <T>       type of an item
-     * @return the average of the array
+     * @return the average of the array, 0 if it is empty
      */
     public static <T> float average(List<T> array, ToIntFunction<T> intValue) {
+        if (array.isEmpty()) {
+            return 0;
+        }
+
         return sum(array, intValue) / array.size();
     }
 }